@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One query box against many boxes, comparing a loop over {@link BoundingBox#intersects(BoundingBox)} with {@link BoundingBoxBatch}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoundingBoxBatchBenchmark {
+
+    @Param({ "1000", "10000", "50000" })
+    int size;
+
+    BoundingBox[] boxes;
+    BoundingBoxBatch batch;
+    BoundingBox query;
+    BitSet out;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        boxes = new BoundingBox[size];
+        batch = new BoundingBoxBatch(size);
+        for (int i = 0; i < size; i++) {
+            double x = random.nextDouble() * 512;
+            double y = random.nextDouble() * 256;
+            double z = random.nextDouble() * 512;
+            boxes[i] = new BoundingBox(x, y, z, x + 0.6, y + 1.8, z + 0.6);
+            batch.add(boxes[i]);
+        }
+        query = new BoundingBox(200, 0, 200, 300, 256, 300);
+        out = new BitSet(size);
+    }
+
+    @Benchmark
+    public int countObjects() {
+        int count = 0;
+        for (BoundingBox box : boxes) {
+            if (query.intersects(box)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int countBatch() {
+        return batch.countIntersections(query);
+    }
+
+    @Benchmark
+    public BitSet intersectsAllBatch() {
+        return batch.intersectsAll(query, out);
+    }
+
+}
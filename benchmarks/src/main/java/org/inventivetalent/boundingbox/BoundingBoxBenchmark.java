@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction and arithmetic of single boxes, comparing the allocating operations with their in-place variants
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoundingBoxBenchmark {
+
+    BoundingBox box;
+    BoundingBox other;
+    BoundingBox scratch;
+    double offset;
+
+    @Setup
+    public void setup() {
+        box = new BoundingBox(0, 0, 0, 0.6, 1.8, 0.6);
+        other = new BoundingBox(0.5, 1.0, 0.5, 1.5, 2.0, 1.5);
+        scratch = new BoundingBox();
+        offset = 0.25;
+    }
+
+    @Benchmark
+    public BoundingBox construct() {
+        return new BoundingBox(offset, 0, offset, 0.6, 1.8, 0.6);
+    }
+
+    @Benchmark
+    public BoundingBox expand() {
+        return box.expand(offset);
+    }
+
+    @Benchmark
+    public BoundingBox expandSelf() {
+        return scratch.set(box).expandSelf(offset);
+    }
+
+    @Benchmark
+    public BoundingBox translate() {
+        return box.translate(offset, offset, offset);
+    }
+
+    @Benchmark
+    public BoundingBox translateSelf() {
+        return scratch.set(box).translateSelf(offset, offset, offset);
+    }
+
+    @Benchmark
+    public BoundingBox combine() {
+        return box.combine(other);
+    }
+
+    @Benchmark
+    public BoundingBox combineSelf() {
+        return scratch.set(box).combineSelf(other);
+    }
+
+    @Benchmark
+    public boolean intersects() {
+        return box.intersects(other);
+    }
+
+    /**
+     * Typical movement step: sweep, move and grow the box
+     */
+    @Benchmark
+    public BoundingBox chain() {
+        return box.add(offset, -offset, 0).expand(0.1).translate(offset, 0, offset).combine(other);
+    }
+
+    @Benchmark
+    public BoundingBox chainSelf() {
+        return scratch.set(box).addSelf(offset, -offset, 0).expandSelf(0.1).translateSelf(offset, 0, offset).combineSelf(other);
+    }
+
+}
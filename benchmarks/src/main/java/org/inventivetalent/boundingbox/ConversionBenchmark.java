@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.inventivetalent.reflection.resolver.FieldResolver;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NMS box conversions against {@link StubAxisAlignedBB}, comparing the previous per-call reflection with the cached handles used by {@link BoundingBox#fromNMS(Object)} and {@link BoundingBox#toNMS()}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConversionBenchmark {
+
+    FieldResolver fieldResolver;
+
+    Object axisAlignedBB;
+    BoundingBox box;
+    BoundingBox scratch;
+    double[] values;
+
+    @Setup
+    public void setup() {
+        fieldResolver = new FieldResolver(StubAxisAlignedBB.class);
+
+        axisAlignedBB = new StubAxisAlignedBB(0, 0, 0, 0.6, 1.8, 0.6);
+        box = new BoundingBox(0, 0, 0, 0.6, 1.8, 0.6);
+        scratch = new BoundingBox();
+        values = new double[6];
+    }
+
+    @Benchmark
+    public BoundingBox fromNMSReflective() throws ReflectiveOperationException {
+        double a = (double) fieldResolver.resolve("a", "minX").get(axisAlignedBB);
+        double b = (double) fieldResolver.resolve("b", "minY").get(axisAlignedBB);
+        double c = (double) fieldResolver.resolve("c", "minZ").get(axisAlignedBB);
+        double d = (double) fieldResolver.resolve("d", "maxX").get(axisAlignedBB);
+        double e = (double) fieldResolver.resolve("e", "maxY").get(axisAlignedBB);
+        double f = (double) fieldResolver.resolve("f", "maxZ").get(axisAlignedBB);
+        return new BoundingBox(a, b, c, d, e, f);
+    }
+
+    @Benchmark
+    public BoundingBox fromNMS() throws Throwable {
+        return StubAxisAlignedBB.fromNMS(axisAlignedBB, new BoundingBox());
+    }
+
+    @Benchmark
+    public BoundingBox fromNMSInto() throws Throwable {
+        return StubAxisAlignedBB.fromNMS(axisAlignedBB, scratch);
+    }
+
+    @Benchmark
+    public double[] fromNMSArray() throws Throwable {
+        StubAxisAlignedBB.fromNMS(axisAlignedBB, values, 0);
+        return values;
+    }
+
+    @Benchmark
+    public Object toNMSReflective() throws ReflectiveOperationException {
+        Constructor<?> constructor = StubAxisAlignedBB.class.getConstructor(double.class, double.class, double.class, double.class, double.class, double.class);
+        return constructor.newInstance(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+    }
+
+    @Benchmark
+    public Object toNMS() throws Throwable {
+        return StubAxisAlignedBB.toNMS(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.inventivetalent.reflection.resolver.MethodResolver;
+import org.inventivetalent.reflection.resolver.ResolverQuery;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The block lookup done by {@link BoundingBoxAPI#getBoundingBox(org.bukkit.block.Block)}, against {@link StubChunk}.
+ * Compares resolving the method on every call (as the API used to) and invoking a cached {@link Method} with the {@link BlockShapeStrategy} used now,
+ * which is constructed over the stub classes since {@link BoundingBoxAPI} itself needs a server.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResolverBenchmark {
+
+    MethodResolver chunkMethodResolver;
+    Method getTypeMethod;
+    BlockShapeStrategy strategy;
+
+    Object chunk;
+    int x;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        chunkMethodResolver = new MethodResolver(StubChunk.class);
+        getTypeMethod = chunkMethodResolver.resolve(new ResolverQuery("getType", StubChunk.StubBlockPosition.class));
+        strategy = new BlockShapeStrategy.V1_16(
+                MethodHandles.lookup().unreflectConstructor(StubChunk.StubBlockPosition.class.getConstructor(double.class, double.class, double.class))
+                        .asType(MethodType.methodType(Object.class, double.class, double.class, double.class)),
+                generic(MethodHandles.lookup().unreflect(getTypeMethod)),
+                generic(MethodHandles.lookup().unreflect(StubChunk.StubBlockData.class.getMethod("getShape", Object.class, StubChunk.StubBlockPosition.class))),
+                generic(MethodHandles.lookup().unreflect(BlockShapeStrategy.resolveVoxelShapeToList(StubChunk.StubVoxelShape.class, StubAxisAlignedBB.class))));
+        chunk = new StubChunk();
+    }
+
+    static MethodHandle generic(MethodHandle handle) {
+        return handle.asType(handle.type().generic());
+    }
+
+    @Benchmark
+    public Object resolvePerCall() throws ReflectiveOperationException {
+        int x = this.x++ & 15;
+        Constructor<?> constructor = StubChunk.StubBlockPosition.class.getConstructor(double.class, double.class, double.class);
+        Object blockPosition = constructor.newInstance((double) x, 64.0D, (double) x);
+        return chunkMethodResolver.resolve(new ResolverQuery("getType", StubChunk.StubBlockPosition.class)).invoke(chunk, blockPosition);
+    }
+
+    @Benchmark
+    public Object cachedMethod() throws ReflectiveOperationException {
+        int x = this.x++ & 15;
+        Object blockPosition = new StubChunk.StubBlockPosition(x, 64, x);
+        return getTypeMethod.invoke(chunk, blockPosition);
+    }
+
+    @Benchmark
+    public Object strategy() throws Throwable {
+        int x = this.x++ & 15;
+        Object blockPosition = strategy.newBlockPosition(x, 64, x);
+        return strategy.getBlockData(chunk, blockPosition);
+    }
+
+    /**
+     * State lookup plus the uncached shape lookup and conversion done by {@link BlockShapeStrategy#getShape(Object, Object, Object, int, int, int)}
+     */
+    @Benchmark
+    public double[] strategyShape() throws Throwable {
+        int x = this.x++ & 15;
+        Object blockPosition = strategy.newBlockPosition(x, 64, x);
+        Object iBlockData = strategy.getBlockData(chunk, blockPosition);
+        List<?> axisAlignedBBs = strategy.getAxisAlignedBBs(iBlockData, null, blockPosition);
+        double[] shape = new double[axisAlignedBBs.size() * 6];
+        for (int i = 0; i < axisAlignedBBs.size(); i++) {
+            StubAxisAlignedBB.fromNMS(axisAlignedBBs.get(i), shape, i * 6);
+        }
+        return shape;
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.inventivetalent.reflection.resolver.FieldResolver;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * Stand-in with the same shape as NMS' AxisAlignedBB, so conversions can be benchmarked without a server.
+ * {@link BoundingBox}'s own handles need a server, so the same handles are resolved here over this class, through the same resolvers.
+ */
+public class StubAxisAlignedBB {
+
+    static final MethodHandle CONSTRUCTOR = BoundingBox.resolveConstructor(StubAxisAlignedBB.class);
+    static final FieldResolver FIELD_RESOLVER = new FieldResolver(StubAxisAlignedBB.class);
+    static final MethodHandle MIN_X = BoundingBox.resolveGetter(FIELD_RESOLVER, "a", "minX");
+    static final MethodHandle MIN_Y = BoundingBox.resolveGetter(FIELD_RESOLVER, "b", "minY");
+    static final MethodHandle MIN_Z = BoundingBox.resolveGetter(FIELD_RESOLVER, "c", "minZ");
+    static final MethodHandle MAX_X = BoundingBox.resolveGetter(FIELD_RESOLVER, "d", "maxX");
+    static final MethodHandle MAX_Y = BoundingBox.resolveGetter(FIELD_RESOLVER, "e", "maxY");
+    static final MethodHandle MAX_Z = BoundingBox.resolveGetter(FIELD_RESOLVER, "f", "maxZ");
+
+    /**
+     * Same as {@link BoundingBox#toNMS(double, double, double, double, double, double)}
+     */
+    static Object toNMS(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) throws Throwable {
+        return (Object) CONSTRUCTOR.invokeExact(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Same as {@link BoundingBox#fromNMS(Object, BoundingBox)}
+     */
+    static BoundingBox fromNMS(Object axisAlignedBB, BoundingBox dest) throws Throwable {
+        dest.minX = (double) MIN_X.invokeExact(axisAlignedBB);
+        dest.minY = (double) MIN_Y.invokeExact(axisAlignedBB);
+        dest.minZ = (double) MIN_Z.invokeExact(axisAlignedBB);
+        dest.maxX = (double) MAX_X.invokeExact(axisAlignedBB);
+        dest.maxY = (double) MAX_Y.invokeExact(axisAlignedBB);
+        dest.maxZ = (double) MAX_Z.invokeExact(axisAlignedBB);
+        return dest;
+    }
+
+    /**
+     * Same as {@link BoundingBox#fromNMS(Object, double[], int)}
+     */
+    static void fromNMS(Object axisAlignedBB, double[] dest, int offset) throws Throwable {
+        dest[offset] = (double) MIN_X.invokeExact(axisAlignedBB);
+        dest[offset + 1] = (double) MIN_Y.invokeExact(axisAlignedBB);
+        dest[offset + 2] = (double) MIN_Z.invokeExact(axisAlignedBB);
+        dest[offset + 3] = (double) MAX_X.invokeExact(axisAlignedBB);
+        dest[offset + 4] = (double) MAX_Y.invokeExact(axisAlignedBB);
+        dest[offset + 5] = (double) MAX_Z.invokeExact(axisAlignedBB);
+    }
+
+    public final double a;
+    public final double b;
+    public final double c;
+    public final double d;
+    public final double e;
+    public final double f;
+
+    public StubAxisAlignedBB(double a, double b, double c, double d, double e, double f) {
+        this.a = a;
+        this.b = b;
+        this.c = c;
+        this.d = d;
+        this.e = e;
+        this.f = f;
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stand-in for NMS' Chunk, with a block state lookup and block shapes shaped like the ones resolved by {@link BlockShapeStrategy.V1_16}
+ */
+public class StubChunk {
+
+    final StubBlockData[] states = new StubBlockData[16 * 16 * 16];
+
+    public StubChunk() {
+        StubBlockData air = new StubBlockData();
+        StubBlockData stone = new StubBlockData(new StubAxisAlignedBB(0, 0, 0, 1, 1, 1));
+        StubBlockData stairs = new StubBlockData(new StubAxisAlignedBB(0, 0, 0, 1, 0.5, 1), new StubAxisAlignedBB(0, 0.5, 0.5, 1, 1, 1));
+        for (int i = 0; i < states.length; i++) {
+            states[i] = i % 3 == 0 ? air : i % 3 == 1 ? stone : stairs;
+        }
+    }
+
+    public StubBlockData getType(StubBlockPosition position) {
+        return states[(position.y & 15) << 8 | (position.z & 15) << 4 | (position.x & 15)];
+    }
+
+    public static class StubBlockPosition {
+        final int x;
+        final int y;
+        final int z;
+
+        public StubBlockPosition(double x, double y, double z) {
+            this.x = (int) Math.floor(x);
+            this.y = (int) Math.floor(y);
+            this.z = (int) Math.floor(z);
+        }
+    }
+
+    /**
+     * Stand-in for NMS' BlockBase$BlockData
+     */
+    public static class StubBlockData {
+        final StubVoxelShape shape;
+
+        public StubBlockData(StubAxisAlignedBB... boxes) {
+            this.shape = new StubVoxelShape(boxes.length == 0 ? Collections.emptyList() : Arrays.asList(boxes));
+        }
+
+        /**
+         * Like {@code VoxelShape BlockBase$BlockData#a(IBlockAccess, BlockPosition, VoxelShapeCollision)}, minus the collision context, which the API binds up front
+         */
+        public StubVoxelShape getShape(Object world, StubBlockPosition position) {
+            return shape;
+        }
+    }
+
+    /**
+     * Stand-in for NMS' VoxelShape
+     */
+    public static class StubVoxelShape {
+        final List<StubAxisAlignedBB> boxes;
+
+        public StubVoxelShape(List<StubAxisAlignedBB> boxes) {
+            this.boxes = boxes;
+        }
+
+        public List<StubAxisAlignedBB> toList() {
+            return boxes;
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+/**
+ * Consumer for block bounding boxes returned by region queries
+ *
+ * @see BoundingBoxAPI#getBoundingBoxes(org.bukkit.World, BoundingBox, BlockBoundingBoxConsumer)
+ */
+@FunctionalInterface
+public interface BlockBoundingBoxConsumer {
+
+    /**
+     * @param x    x-coordinate of the block
+     * @param y    y-coordinate of the block
+     * @param z    z-coordinate of the block
+     * @param minX absolute minimum x-coordinate of the box
+     * @param minY absolute minimum y-coordinate of the box
+     * @param minZ absolute minimum z-coordinate of the box
+     * @param maxX absolute maximum x-coordinate of the box
+     * @param maxY absolute maximum y-coordinate of the box
+     * @param maxZ absolute maximum z-coordinate of the box
+     */
+    void accept(int x, int y, int z, double minX, double minY, double minZ, double maxX, double maxY, double maxZ);
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+/**
+ * Immutable, block-aligned region with integer coordinates. Both the minimum and maximum block are part of the region.
+ * <p>
+ * Cheaper to store and hash than a {@link BoundingBox}, which makes it suitable as a map key.
+ */
+public final class BlockRegion {
+
+    static final int LOCAL_Y_BITS = 12;
+    static final int LOCAL_Y_MIN = -(1 << (LOCAL_Y_BITS - 1));
+    static final int LOCAL_Y_MAX = (1 << (LOCAL_Y_BITS - 1)) - 1;
+
+    public final int minX;
+    public final int minY;
+    public final int minZ;
+    public final int maxX;
+    public final int maxY;
+    public final int maxZ;
+
+    public BlockRegion(int x1, int y1, int z1, int x2, int y2, int z2) {
+        this.minX = Math.min(x1, x2);
+        this.minY = Math.min(y1, y2);
+        this.minZ = Math.min(z1, z2);
+        this.maxX = Math.max(x1, x2);
+        this.maxY = Math.max(y1, y2);
+        this.maxZ = Math.max(z1, z2);
+    }
+
+    /**
+     * @return the region of all blocks whose 1x1x1 cell overlaps the bounding box
+     */
+    public static BlockRegion fromBoundingBox(BoundingBox boundingBox) {
+        int minX = (int) Math.floor(boundingBox.minX);
+        int minY = (int) Math.floor(boundingBox.minY);
+        int minZ = (int) Math.floor(boundingBox.minZ);
+        return new BlockRegion(minX, minY, minZ,//
+                Math.max((int) Math.ceil(boundingBox.maxX) - 1, minX), Math.max((int) Math.ceil(boundingBox.maxY) - 1, minY), Math.max((int) Math.ceil(boundingBox.maxZ) - 1, minZ));
+    }
+
+    /**
+     * @return the bounding box covering all blocks of this region
+     */
+    public BoundingBox toBoundingBox() {
+        return new BoundingBox(minX, minY, minZ, maxX + 1.0D, maxY + 1.0D, maxZ + 1.0D);
+    }
+
+    public int getSizeX() {
+        return maxX - minX + 1;
+    }
+
+    public int getSizeY() {
+        return maxY - minY + 1;
+    }
+
+    public int getSizeZ() {
+        return maxZ - minZ + 1;
+    }
+
+    /**
+     * @return the number of blocks in this region
+     */
+    public long volume() {
+        return (long) getSizeX() * getSizeY() * getSizeZ();
+    }
+
+    public boolean contains(int x, int y, int z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
+    public boolean contains(BlockRegion other) {
+        return other.minX >= minX && other.maxX <= maxX && other.minY >= minY && other.maxY <= maxY && other.minZ >= minZ && other.maxZ <= maxZ;
+    }
+
+    public boolean intersects(BlockRegion other) {
+        return other.minX <= maxX && other.maxX >= minX && other.minY <= maxY && other.maxY >= minY && other.minZ <= maxZ && other.maxZ >= minZ;
+    }
+
+    public BlockRegion expand(int x, int y, int z) {
+        return new BlockRegion(minX - x, minY - y, minZ - z, maxX + x, maxY + y, maxZ + z);
+    }
+
+    public BlockRegion translate(int x, int y, int z) {
+        return new BlockRegion(minX + x, minY + y, minZ + z, maxX + x, maxY + y, maxZ + z);
+    }
+
+    /**
+     * @return whether this region fits into a single chunk and can be packed with {@link #packLocal()}
+     */
+    public boolean isChunkLocal() {
+        return minX >> 4 == maxX >> 4 && minZ >> 4 == maxZ >> 4 && minY >= LOCAL_Y_MIN && maxY <= LOCAL_Y_MAX;
+    }
+
+    /**
+     * Packs this region into a long, relative to its chunk. The chunk coordinates are not included.
+     *
+     * @throws IllegalStateException if the region isn't {@link #isChunkLocal() chunk-local}
+     * @see #unpackLocal(long, int, int)
+     */
+    public long packLocal() {
+        if (!isChunkLocal()) {
+            throw new IllegalStateException("Region doesn't fit into a single chunk: " + this);
+        }
+        return (long) (minX & 15)//
+                | (long) (minZ & 15) << 4//
+                | (long) (maxX & 15) << 8//
+                | (long) (maxZ & 15) << 12//
+                | (long) (minY & 0xFFF) << 16//
+                | (long) (maxY & 0xFFF) << 28;
+    }
+
+    /**
+     * Unpacks a region packed with {@link #packLocal()}
+     *
+     * @param packed the packed region
+     * @param chunkX x-coordinate of the region's chunk
+     * @param chunkZ z-coordinate of the region's chunk
+     * @return the region
+     */
+    public static BlockRegion unpackLocal(long packed, int chunkX, int chunkZ) {
+        int baseX = chunkX << 4;
+        int baseZ = chunkZ << 4;
+        return new BlockRegion(//
+                baseX + (int) (packed & 15),//
+                (int) (packed << 36 >> 52),//
+                baseZ + (int) (packed >> 4 & 15),//
+                baseX + (int) (packed >> 8 & 15),//
+                (int) (packed << 24 >> 52),//
+                baseZ + (int) (packed >> 12 & 15));
+    }
+
+    @Override
+    public String toString() {
+        return "BlockRegion{" +
+                "(" + minX + "," + minY + "," + minZ + ")-(" + maxX + "," + maxY + "," + maxZ + ")" +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) { return true; }
+        if (o == null || getClass() != o.getClass()) { return false; }
+
+        BlockRegion that = (BlockRegion) o;
+
+        return minX == that.minX && minY == that.minY && minZ == that.minZ && maxX == that.maxX && maxY == that.maxY && maxZ == that.maxZ;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = minX;
+        result = 31 * result + minY;
+        result = 31 * result + minZ;
+        result = 31 * result + maxX;
+        result = 31 * result + maxY;
+        result = 31 * result + maxZ;
+        return result;
+    }
+
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Cache for the relative block bounding boxes returned by {@link BoundingBoxAPI#getBoundingBox(Block)}
+ * <p>
+ * Shapes are cached by their NMS block state (IBlockData), since most states always have the same shape.
+ * This only holds from 1.13 on; on older versions the shape also depends on the neighbouring blocks, so shapes aren't cached at all.
+ * States which are {@link #setPositionDependent(Predicate) position dependent} (e.g. randomly offset plants) are cached per world &amp; position instead, and are revalidated against the current block state on every lookup, so block changes don't return stale shapes.
+ * States whose shape depends on their tile entity (e.g. shulker boxes or moving pistons) are {@link #setUncacheable(Predicate) never cached}.
+ * Both are decided once per state from its {@link Material}, without accessing the world.
+ * <p>
+ * Both caches are bounded and evict the least recently used entries. Position entries should be dropped when chunks or worlds unload, see {@link BlockShapeCacheListener}.
+ * <p>
+ * The cache is thread-safe.
+ */
+public class BlockShapeCache {
+
+    static final Set<String> DEFAULT_POSITION_DEPENDENT = new HashSet<>(Arrays.asList(
+            // Blocks with a random XZ/XYZ offset
+            "GRASS", "FERN", "TALL_GRASS", "LARGE_FERN", "DANDELION", "POPPY", "BLUE_ORCHID", "ALLIUM", "AZURE_BLUET", "RED_TULIP", "ORANGE_TULIP", "WHITE_TULIP", "PINK_TULIP", "OXEYE_DAISY", "CORNFLOWER", "LILY_OF_THE_VALLEY", "WITHER_ROSE",//
+            "SUNFLOWER", "LILAC", "ROSE_BUSH", "PEONY", "BAMBOO", "BAMBOO_SAPLING", "CRIMSON_ROOTS", "WARPED_ROOTS", "NETHER_SPROUTS", "HANGING_ROOTS", "SMALL_DRIPLEAF", "POINTED_DRIPSTONE", "MANGROVE_PROPAGULE",//
+            // Pre-1.13 names
+            "YELLOW_FLOWER", "RED_ROSE", "LONG_GRASS", "DOUBLE_PLANT"));
+
+    static final Set<String> DEFAULT_UNCACHEABLE = new HashSet<>(Arrays.asList(
+            // Shapes depending on the tile entity
+            "SHULKER_BOX", "WHITE_SHULKER_BOX", "ORANGE_SHULKER_BOX", "MAGENTA_SHULKER_BOX", "LIGHT_BLUE_SHULKER_BOX", "YELLOW_SHULKER_BOX", "LIME_SHULKER_BOX", "PINK_SHULKER_BOX", "GRAY_SHULKER_BOX",//
+            "LIGHT_GRAY_SHULKER_BOX", "SILVER_SHULKER_BOX", "CYAN_SHULKER_BOX", "PURPLE_SHULKER_BOX", "BLUE_SHULKER_BOX", "BROWN_SHULKER_BOX", "GREEN_SHULKER_BOX", "RED_SHULKER_BOX", "BLACK_SHULKER_BOX",//
+            "MOVING_PISTON", "PISTON_MOVING_PIECE"));
+
+    enum Caching {
+        STATE,
+        POSITION,
+        NONE
+    }
+
+    final int maximumStates;
+    final int maximumPositions;
+
+    volatile boolean enabled = true;
+    volatile Predicate<Material> positionDependent = material -> DEFAULT_POSITION_DEPENDENT.contains(material.name());
+    volatile Predicate<Material> uncacheable = material -> DEFAULT_UNCACHEABLE.contains(material.name());
+
+    // NMS block state -> its Material, or null if it can't be determined
+    final Function<Object, Material> stateMaterial;
+
+    final Map<Object, double[]> stateShapes;
+    // Read without the lock, so region scans only take it for states they haven't seen yet
+    final Map<Object, Caching> stateCaching = new ConcurrentHashMap<>();
+    final Map<UUID, LinkedHashMap<Long, PositionEntry>> positionShapes = new HashMap<>();
+
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+
+    public BlockShapeCache() {
+        this(8192, 2048);
+    }
+
+    /**
+     * @param maximumStates    maximum number of cached block states
+     * @param maximumPositions maximum number of cached position dependent shapes per world
+     */
+    public BlockShapeCache(int maximumStates, int maximumPositions) {
+        this(maximumStates, maximumPositions, BoundingBoxAPI::getStateMaterial);
+    }
+
+    BlockShapeCache(int maximumStates, int maximumPositions, Function<Object, Material> stateMaterial) {
+        this.maximumStates = maximumStates;
+        this.maximumPositions = maximumPositions;
+        this.stateMaterial = stateMaterial;
+        this.stateShapes = new LinkedHashMap<Object, double[]>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, double[]> eldest) {
+                return size() > BlockShapeCache.this.maximumStates;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            clear();
+        }
+    }
+
+    /**
+     * Sets the predicate used to decide whether a block's shape depends on its position rather than just its state. The predicate is tested once per state, possibly off the main thread.
+     */
+    public synchronized void setPositionDependent(Predicate<Material> positionDependent) {
+        this.positionDependent = positionDependent;
+        clear();
+    }
+
+    /**
+     * Sets the predicate used to decide whether a block's shape depends on more than its state and position (e.g. its tile entity), so it must not be cached at all. The predicate is tested once per state, possibly off the main thread.
+     */
+    public synchronized void setUncacheable(Predicate<Material> uncacheable) {
+        this.uncacheable = uncacheable;
+        clear();
+    }
+
+    /**
+     * @param iBlockData NMS block state
+     * @return how shapes of the state are cached. States without a known {@link Material} aren't cached.
+     */
+    Caching getCaching(Object iBlockData) {
+        Caching caching = stateCaching.get(iBlockData);
+        if (caching == null) {
+            Material material = stateMaterial.apply(iBlockData);
+            if (material == null || uncacheable.test(material)) {
+                caching = Caching.NONE;
+            } else if (positionDependent.test(material)) {
+                caching = Caching.POSITION;
+            } else {
+                caching = Caching.STATE;
+            }
+            stateCaching.put(iBlockData, caching);
+        }
+        return caching;
+    }
+
+    /**
+     * @param block      the block
+     * @param iBlockData NMS block state of the block
+     * @return the cached shape, or <code>null</code>
+     */
+    double[] get(Block block, Object iBlockData) {
+        return get(block.getWorld(), block.getX(), block.getY(), block.getZ(), iBlockData);
+    }
+
+    /**
+     * @param iBlockData NMS block state of the block at the position
+     * @return the cached shape, or <code>null</code>
+     */
+    double[] get(World world, int x, int y, int z, Object iBlockData) {
+        if (!enabled) {
+            return null;
+        }
+        Caching caching = getCaching(iBlockData);
+        double[] shape;
+        if (caching == Caching.NONE) {
+            shape = null;
+        } else if (caching == Caching.POSITION) {
+            UUID worldId = world.getUID();
+            synchronized (this) {
+                LinkedHashMap<Long, PositionEntry> worldShapes = positionShapes.get(worldId);
+                PositionEntry entry = worldShapes == null ? null : worldShapes.get(pack(x, y, z));
+                shape = entry != null && entry.iBlockData == iBlockData ? entry.shape : null;
+            }
+        } else {
+            synchronized (this) {
+                shape = stateShapes.get(iBlockData);
+            }
+        }
+        if (shape != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return shape;
+    }
+
+    void put(Block block, Object iBlockData, double[] shape) {
+        put(block.getWorld(), block.getX(), block.getY(), block.getZ(), iBlockData, shape);
+    }
+
+    void put(World world, int x, int y, int z, Object iBlockData, double[] shape) {
+        if (!enabled) {
+            return;
+        }
+        Caching caching = getCaching(iBlockData);
+        if (caching == Caching.POSITION) {
+            UUID worldId = world.getUID();
+            synchronized (this) {
+                positionShapes.computeIfAbsent(worldId, uuid -> new LinkedHashMap<Long, PositionEntry>(64, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Long, PositionEntry> eldest) {
+                        return size() > maximumPositions;
+                    }
+                }).put(pack(x, y, z), new PositionEntry(iBlockData, shape));
+            }
+        } else if (caching == Caching.STATE) {
+            synchronized (this) {
+                stateShapes.put(iBlockData, shape);
+            }
+        }
+    }
+
+    /**
+     * Removes the position dependent shape cached for the block
+     */
+    public synchronized void invalidate(Block block) {
+        LinkedHashMap<Long, PositionEntry> worldShapes = positionShapes.get(block.getWorld().getUID());
+        if (worldShapes != null) {
+            worldShapes.remove(pack(block.getX(), block.getY(), block.getZ()));
+        }
+    }
+
+    /**
+     * Removes all position dependent shapes cached for blocks in the chunk
+     */
+    public synchronized void invalidate(Chunk chunk) {
+        LinkedHashMap<Long, PositionEntry> worldShapes = positionShapes.get(chunk.getWorld().getUID());
+        if (worldShapes != null) {
+            int chunkX = chunk.getX();
+            int chunkZ = chunk.getZ();
+            worldShapes.keySet().removeIf(position -> unpackX(position) >> 4 == chunkX && unpackZ(position) >> 4 == chunkZ);
+        }
+    }
+
+    /**
+     * Removes all position dependent shapes cached for the world
+     */
+    public synchronized void invalidate(World world) {
+        positionShapes.remove(world.getUID());
+    }
+
+    public synchronized void clear() {
+        stateShapes.clear();
+        stateCaching.clear();
+        positionShapes.clear();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return ratio of hits to total lookups, or 0 if there were no lookups yet
+     */
+    public double getHitRate() {
+        long hits = this.hits.sum();
+        long total = hits + misses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+    }
+
+    public synchronized int size() {
+        int size = stateShapes.size();
+        for (LinkedHashMap<Long, PositionEntry> worldShapes : positionShapes.values()) {
+            size += worldShapes.size();
+        }
+        return size;
+    }
+
+    static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+
+    static class PositionEntry {
+        final Object iBlockData;
+        final double[] shape;
+
+        PositionEntry(Object iBlockData, double[] shape) {
+            this.iBlockData = iBlockData;
+            this.shape = shape;
+        }
+    }
+
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.inventivetalent.reflection.minecraft.Minecraft;
+import org.inventivetalent.reflection.minecraft.MinecraftVersion;
+import org.inventivetalent.reflection.resolver.MethodResolver;
+import org.inventivetalent.reflection.resolver.ResolverQuery;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.util.List;
+
+import static org.inventivetalent.boundingbox.BoundingBoxAPI.AxisAlignedBB;
+import static org.inventivetalent.boundingbox.BoundingBoxAPI.Block;
+import static org.inventivetalent.boundingbox.BoundingBoxAPI.BlockData;
+import static org.inventivetalent.boundingbox.BoundingBoxAPI.BlockMethodResolver;
+import static org.inventivetalent.boundingbox.BoundingBoxAPI.BlockPosition;
+import static org.inventivetalent.boundingbox.BoundingBoxAPI.ChunkMethodResolver;
+import static org.inventivetalent.boundingbox.BoundingBoxAPI.IBlockAccess;
+import static org.inventivetalent.boundingbox.BoundingBoxAPI.IBlockData;
+import static org.inventivetalent.boundingbox.BoundingBoxAPI.IBlockDataMethodResolver;
+import static org.inventivetalent.boundingbox.BoundingBoxAPI.World;
+import static org.inventivetalent.boundingbox.BoundingBoxAPI.checkReturnType;
+import static org.inventivetalent.boundingbox.BoundingBoxAPI.generic;
+import static org.inventivetalent.boundingbox.BoundingBoxAPI.nmsClassResolver;
+import static org.inventivetalent.boundingbox.BoundingBoxAPI.singletonOrEmpty;
+
+/**
+ * Version-specific access to a block's NMS {@code AxisAlignedBB}s.
+ * <p>
+ * Exactly one implementation is selected by {@link #select()}. Its {@code resolve()} factory looks up (and type checks) all of its handles,
+ * so a mapping change fails when {@link BoundingBoxAPI} is initialized instead of on the first lookup.
+ * The constructors only take the already resolved handles, with all reference types adapted to {@code Object}.
+ */
+interface BlockShapeStrategy {
+
+    double[] EMPTY_SHAPE = new double[0];
+
+    /**
+     * @return a new NMS BlockPosition
+     */
+    Object newBlockPosition(int x, int y, int z) throws Throwable;
+
+    /**
+     * @param chunk         NMS chunk containing the block
+     * @param blockPosition NMS BlockPosition
+     * @return the NMS IBlockData at the position
+     */
+    Object getBlockData(Object chunk, Object blockPosition) throws Throwable;
+
+    /**
+     * @param iBlockData    NMS IBlockData of the block
+     * @param world         NMS world handle (IBlockAccess)
+     * @param blockPosition NMS BlockPosition
+     * @return the NMS AxisAlignedBBs making up the shape of the block at the position, relative to the block. Empty if the block has no shape.
+     */
+    List<?> getAxisAlignedBBs(Object iBlockData, Object world, Object blockPosition) throws Throwable;
+
+    /**
+     * @param iBlockData    NMS IBlockData of the block
+     * @param world         NMS world handle (IBlockAccess)
+     * @param blockPosition NMS BlockPosition
+     * @param x             block x, used to make {@link #isAbsolute() absolute} boxes relative (same for y and z)
+     * @return the shape of the block, relative to the block, as minX, minY, minZ, maxX, maxY, maxZ of the overall bounds, followed by the same values for each box. {@link #EMPTY_SHAPE} if the block has no shape.
+     */
+    default double[] getShape(Object iBlockData, Object world, Object blockPosition, int x, int y, int z) throws Throwable {
+        List<?> axisAlignedBBs = getAxisAlignedBBs(iBlockData, world, blockPosition);
+        if (axisAlignedBBs.isEmpty()) {
+            return EMPTY_SHAPE;
+        }
+        // Overall bounds first, followed by the individual boxes
+        double[] shape = new double[6 + axisAlignedBBs.size() * 6];
+        for (int i = 0; i < axisAlignedBBs.size(); i++) {
+            BoundingBox.fromNMS(axisAlignedBBs.get(i), shape, 6 + i * 6);
+        }
+        if (isAbsolute()) {
+            for (int o = 6; o < shape.length; o += 6) {
+                shape[o] -= x;
+                shape[o + 1] -= y;
+                shape[o + 2] -= z;
+                shape[o + 3] -= x;
+                shape[o + 4] -= y;
+                shape[o + 5] -= z;
+            }
+        }
+        System.arraycopy(shape, 6, shape, 0, 6);
+        for (int o = 12; o < shape.length; o += 6) {
+            shape[0] = Math.min(shape[0], shape[o]);
+            shape[1] = Math.min(shape[1], shape[o + 1]);
+            shape[2] = Math.min(shape[2], shape[o + 2]);
+            shape[3] = Math.max(shape[3], shape[o + 3]);
+            shape[4] = Math.max(shape[4], shape[o + 4]);
+            shape[5] = Math.max(shape[5], shape[o + 5]);
+        }
+        return shape;
+    }
+
+    /**
+     * @return whether the shape only depends on the IBlockData, so it can be cached per state. Before 1.13 it also depends on the neighbouring blocks (e.g. connecting fences, panes and walls), which aren't part of the state.
+     */
+    boolean isCacheable();
+
+    /**
+     * @return whether {@link #getAxisAlignedBBs(Object, Object, Object)} returns absolute boxes instead of boxes relative to the block
+     */
+    boolean isAbsolute();
+
+    /**
+     * @return the implementation for the running server version
+     */
+    static BlockShapeStrategy select() throws ReflectiveOperationException {
+        if (MinecraftVersion.VERSION.newerThan(Minecraft.Version.v1_18_R1)) {
+            return V1_16.resolve("a_");
+        }
+        if (MinecraftVersion.VERSION.newerThan(Minecraft.Version.v1_16_R1)) {
+            return V1_16.resolve("getType");
+        }
+        if (MinecraftVersion.VERSION.newerThan(Minecraft.Version.v1_14_R1)) {
+            return V1_14.resolve();
+        }
+        if (MinecraftVersion.VERSION.newerThan(Minecraft.Version.v1_13_R1)) {
+            return V1_13.resolve();
+        }
+        if (MinecraftVersion.VERSION.newerThan(Minecraft.Version.v1_9_R1)) {
+            return V1_9.resolve();
+        }
+        return V1_8.resolve();
+    }
+
+    abstract class Base implements BlockShapeStrategy {
+
+        final MethodHandle blockPositionConstructor;
+        final MethodHandle getType;
+
+        /**
+         * @param blockPositionConstructor {@code BlockPosition(double, double, double)}
+         * @param getType                  {@code IBlockData Chunk#getType(BlockPosition)}
+         */
+        Base(MethodHandle blockPositionConstructor, MethodHandle getType) {
+            this.blockPositionConstructor = blockPositionConstructor;
+            this.getType = getType;
+        }
+
+        @Override
+        public final Object newBlockPosition(int x, int y, int z) throws Throwable {
+            return (Object) blockPositionConstructor.invokeExact((double) x, (double) y, (double) z);
+        }
+
+        @Override
+        public final Object getBlockData(Object chunk, Object blockPosition) throws Throwable {
+            return (Object) getType.invokeExact(chunk, blockPosition);
+        }
+
+        @Override
+        public boolean isCacheable() {
+            return true;
+        }
+
+        @Override
+        public boolean isAbsolute() {
+            return false;
+        }
+
+    }
+
+    /**
+     * 1.8: {@code AxisAlignedBB Block#a(World, BlockPosition, IBlockData)}, which returns an absolute box and updates the block's bounds for the neighbours first
+     */
+    final class V1_8 extends Base {
+
+        final MethodHandle getBlock;
+        final MethodHandle getBounds;
+
+        V1_8(MethodHandle blockPositionConstructor, MethodHandle getType, MethodHandle getBlock, MethodHandle getBounds) {
+            super(blockPositionConstructor, getType);
+            this.getBlock = getBlock;
+            this.getBounds = getBounds;
+        }
+
+        static V1_8 resolve() throws ReflectiveOperationException {
+            return new V1_8(resolveBlockPositionConstructor(), resolveGetType("getBlockData"), resolveGetBlock(),
+                    generic(MethodHandles.lookup().unreflect(checkReturnType(BlockMethodResolver.resolve(new ResolverQuery("a", World, BlockPosition, IBlockData)), AxisAlignedBB))));
+        }
+
+        @Override
+        public List<?> getAxisAlignedBBs(Object iBlockData, Object world, Object blockPosition) throws Throwable {
+            Object nmsBlock = (Object) getBlock.invokeExact(iBlockData);
+            return singletonOrEmpty((Object) getBounds.invokeExact(nmsBlock, world, blockPosition, iBlockData));
+        }
+
+        @Override
+        public boolean isCacheable() {
+            return false;
+        }
+
+        @Override
+        public boolean isAbsolute() {
+            return true;
+        }
+
+    }
+
+    /**
+     * 1.9 - 1.12: {@code AxisAlignedBB Block#a(IBlockData, IBlockAccess, BlockPosition)}, which resolves the actual state from the neighbours first
+     */
+    final class V1_9 extends Base {
+
+        final MethodHandle getBlock;
+        final MethodHandle getBounds;
+
+        V1_9(MethodHandle blockPositionConstructor, MethodHandle getType, MethodHandle getBlock, MethodHandle getBounds) {
+            super(blockPositionConstructor, getType);
+            this.getBlock = getBlock;
+            this.getBounds = getBounds;
+        }
+
+        static V1_9 resolve() throws ReflectiveOperationException {
+            return new V1_9(resolveBlockPositionConstructor(), resolveGetType("getBlockData"), resolveGetBlock(),
+                    generic(MethodHandles.lookup().unreflect(checkReturnType(BlockMethodResolver.resolve(new ResolverQuery("a", IBlockData, IBlockAccess, BlockPosition)), AxisAlignedBB))));
+        }
+
+        @Override
+        public List<?> getAxisAlignedBBs(Object iBlockData, Object world, Object blockPosition) throws Throwable {
+            Object nmsBlock = (Object) getBlock.invokeExact(iBlockData);
+            return singletonOrEmpty((Object) getBounds.invokeExact(nmsBlock, iBlockData, world, blockPosition));
+        }
+
+        @Override
+        public boolean isCacheable() {
+            return false;
+        }
+
+    }
+
+    /**
+     * 1.13: {@code VoxelShape Block#a(IBlockData, IBlockAccess, BlockPosition)}
+     */
+    final class V1_13 extends Base {
+
+        final MethodHandle getBlock;
+        final MethodHandle getShape;
+        final MethodHandle getShapeBoxes;
+
+        V1_13(MethodHandle blockPositionConstructor, MethodHandle getType, MethodHandle getBlock, MethodHandle getShape, MethodHandle getShapeBoxes) {
+            super(blockPositionConstructor, getType);
+            this.getBlock = getBlock;
+            this.getShape = getShape;
+            this.getShapeBoxes = getShapeBoxes;
+        }
+
+        static V1_13 resolve() throws ReflectiveOperationException {
+            Class<?> voxelShape = resolveVoxelShape();
+            return new V1_13(resolveBlockPositionConstructor(), resolveGetType("getType"), resolveGetBlock(),
+                    generic(MethodHandles.lookup().unreflect(checkReturnType(BlockMethodResolver.resolve(new ResolverQuery("a", IBlockData, IBlockAccess, BlockPosition)), voxelShape))),
+                    generic(MethodHandles.lookup().unreflect(resolveVoxelShapeToList(voxelShape, AxisAlignedBB))));
+        }
+
+        @Override
+        public List<?> getAxisAlignedBBs(Object iBlockData, Object world, Object blockPosition) throws Throwable {
+            Object nmsBlock = (Object) getBlock.invokeExact(iBlockData);
+            Object voxelShape = (Object) getShape.invokeExact(nmsBlock, iBlockData, world, blockPosition);
+            return (List<?>) (Object) getShapeBoxes.invokeExact(voxelShape);
+        }
+
+    }
+
+    /**
+     * 1.14 - 1.15: {@code VoxelShape Block#a(IBlockData, IBlockAccess, BlockPosition, VoxelShapeCollision)}
+     */
+    final class V1_14 extends Base {
+
+        final MethodHandle getBlock;
+        final MethodHandle getShape;
+        final MethodHandle getShapeBoxes;
+
+        /**
+         * @param getShape bound to the empty VoxelShapeCollision, so it takes the same arguments as on 1.13
+         */
+        V1_14(MethodHandle blockPositionConstructor, MethodHandle getType, MethodHandle getBlock, MethodHandle getShape, MethodHandle getShapeBoxes) {
+            super(blockPositionConstructor, getType);
+            this.getBlock = getBlock;
+            this.getShape = getShape;
+            this.getShapeBoxes = getShapeBoxes;
+        }
+
+        static V1_14 resolve() throws ReflectiveOperationException {
+            Class<?> voxelShape = resolveVoxelShape();
+            Class<?> voxelShapeCollision = resolveVoxelShapeCollision();
+            Method getShape = checkReturnType(BlockMethodResolver.resolve(new ResolverQuery("a", IBlockData, IBlockAccess, BlockPosition, voxelShapeCollision)), voxelShape);
+            return new V1_14(resolveBlockPositionConstructor(), resolveGetType("getType"), resolveGetBlock(),
+                    generic(MethodHandles.insertArguments(MethodHandles.lookup().unreflect(getShape), 4, resolveEmptyCollision(voxelShapeCollision))),
+                    generic(MethodHandles.lookup().unreflect(resolveVoxelShapeToList(voxelShape, AxisAlignedBB))));
+        }
+
+        @Override
+        public List<?> getAxisAlignedBBs(Object iBlockData, Object world, Object blockPosition) throws Throwable {
+            Object nmsBlock = (Object) getBlock.invokeExact(iBlockData);
+            Object voxelShape = (Object) getShape.invokeExact(nmsBlock, iBlockData, world, blockPosition);
+            return (List<?>) (Object) getShapeBoxes.invokeExact(voxelShape);
+        }
+
+    }
+
+    /**
+     * 1.16+: {@code VoxelShape BlockBase$BlockData#a(IBlockAccess, BlockPosition, VoxelShapeCollision)}
+     */
+    final class V1_16 extends Base {
+
+        final MethodHandle getShape;
+        final MethodHandle getShapeBoxes;
+
+        /**
+         * @param getShape bound to the empty VoxelShapeCollision
+         */
+        V1_16(MethodHandle blockPositionConstructor, MethodHandle getType, MethodHandle getShape, MethodHandle getShapeBoxes) {
+            super(blockPositionConstructor, getType);
+            this.getShape = getShape;
+            this.getShapeBoxes = getShapeBoxes;
+        }
+
+        /**
+         * @param getTypeName name of {@code Chunk#getType}, which is obfuscated from 1.18
+         */
+        static V1_16 resolve(String getTypeName) throws ReflectiveOperationException {
+            Class<?> voxelShape = resolveVoxelShape();
+            Class<?> voxelShapeCollision = resolveVoxelShapeCollision();
+            Method getShape = checkReturnType(new MethodResolver(BlockData).resolve(new ResolverQuery("a", IBlockAccess, BlockPosition, voxelShapeCollision)), voxelShape);
+            return new V1_16(resolveBlockPositionConstructor(), resolveGetType(getTypeName),
+                    generic(MethodHandles.insertArguments(MethodHandles.lookup().unreflect(getShape), 3, resolveEmptyCollision(voxelShapeCollision))),
+                    generic(MethodHandles.lookup().unreflect(resolveVoxelShapeToList(voxelShape, AxisAlignedBB))));
+        }
+
+        @Override
+        public List<?> getAxisAlignedBBs(Object iBlockData, Object world, Object blockPosition) throws Throwable {
+            Object voxelShape = (Object) getShape.invokeExact(iBlockData, world, blockPosition);
+            return (List<?>) (Object) getShapeBoxes.invokeExact(voxelShape);
+        }
+
+    }
+
+    static MethodHandle resolveBlockPositionConstructor() throws ReflectiveOperationException {
+        if (BlockPosition == null) {
+            throw new ClassNotFoundException("BlockPosition");
+        }
+        return MethodHandles.lookup().unreflectConstructor(BlockPosition.getConstructor(double.class, double.class, double.class))
+                .asType(MethodType.methodType(Object.class, double.class, double.class, double.class));
+    }
+
+    static MethodHandle resolveGetType(String name) throws ReflectiveOperationException {
+        return generic(MethodHandles.lookup().unreflect(checkReturnType(ChunkMethodResolver.resolve(new ResolverQuery(name, BlockPosition)), IBlockData)));
+    }
+
+    static MethodHandle resolveGetBlock() throws ReflectiveOperationException {
+        return generic(MethodHandles.lookup().unreflect(checkReturnType(IBlockDataMethodResolver.resolve("getBlock", "b"), Block)));
+    }
+
+    static Class<?> resolveVoxelShape() throws ClassNotFoundException {
+        return nmsClassResolver.resolve("world.phys.shapes.VoxelShape", "VoxelShape");
+    }
+
+    static Class<?> resolveVoxelShapeCollision() throws ClassNotFoundException {
+        return nmsClassResolver.resolve("world.phys.shapes.VoxelShapeCollision", "VoxelShapeCollision");
+    }
+
+    /**
+     * @return the shared empty VoxelShapeCollision context
+     */
+    static Object resolveEmptyCollision(Class<?> voxelShapeCollision) throws ReflectiveOperationException {
+        /// static VoxelShapeCollision a()
+        Object collision = new MethodResolver(voxelShapeCollision).resolveSignature("VoxelShapeCollision a()").invoke(null);
+        if (collision == null) {
+            throw new NoSuchMethodException("static VoxelShapeCollision " + voxelShapeCollision.getName() + ".a() returned null");
+        }
+        return collision;
+    }
+
+    /**
+     * @return the {@code List<AxisAlignedBB> toList()} method of VoxelShape
+     * @throws NoSuchMethodException if there isn't exactly one no-args method returning {@code List<AxisAlignedBB>}
+     */
+    static Method resolveVoxelShapeToList(Class<?> voxelShape, Class<?> axisAlignedBB) throws NoSuchMethodException {
+        Method found = null;
+        for (Method method : voxelShape.getDeclaredMethods()) {
+            if (method.getParameterCount() != 0 || Modifier.isStatic(method.getModifiers()) || !(method.getGenericReturnType() instanceof ParameterizedType)) {
+                continue;
+            }
+            ParameterizedType returnType = (ParameterizedType) method.getGenericReturnType();
+            if (returnType.getRawType() == List.class && returnType.getActualTypeArguments()[0] == axisAlignedBB) {
+                if (found != null) {
+                    throw new NoSuchMethodException("Ambiguous List<AxisAlignedBB> " + voxelShape.getName() + ".toList(): " + found.getName() + "() and " + method.getName() + "()");
+                }
+                found = method;
+            }
+        }
+        if (found == null) {
+            throw new NoSuchMethodException("List<AxisAlignedBB> " + voxelShape.getName() + ".toList()");
+        }
+        found.setAccessible(true);
+        return found;
+    }
+
+}
@@ -34,13 +34,26 @@ import org.inventivetalent.reflection.resolver.FieldResolver;
 import org.inventivetalent.reflection.resolver.minecraft.NMSClassResolver;
 import org.inventivetalent.vectors.d3.Vector3DDouble;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+
 public class BoundingBox {
 
     static NMSClassResolver nmsClassResolver = new NMSClassResolver();
 
-    static Class<?> AxisAlignedBB = nmsClassResolver.resolveSilent("world.phys.AxisAlignedBB", "AxisAlignedBB");
+    static Class<?> AxisAlignedBB = resolveAxisAlignedBB();
+
+    static FieldResolver AxisAlignedBBFieldResolver = AxisAlignedBB != null ? new FieldResolver(AxisAlignedBB) : null;
 
-    static FieldResolver AxisAlignedBBFieldResolver = new FieldResolver(AxisAlignedBB);
+    static final MethodHandle AxisAlignedBBConstructor = resolveConstructor(AxisAlignedBB);
+    static final MethodHandle AxisAlignedBBMinX = resolveGetter(AxisAlignedBBFieldResolver, "a", "minX");
+    static final MethodHandle AxisAlignedBBMinY = resolveGetter(AxisAlignedBBFieldResolver, "b", "minY");
+    static final MethodHandle AxisAlignedBBMinZ = resolveGetter(AxisAlignedBBFieldResolver, "c", "minZ");
+    static final MethodHandle AxisAlignedBBMaxX = resolveGetter(AxisAlignedBBFieldResolver, "d", "maxX");
+    static final MethodHandle AxisAlignedBBMaxY = resolveGetter(AxisAlignedBBFieldResolver, "e", "maxY");
+    static final MethodHandle AxisAlignedBBMaxZ = resolveGetter(AxisAlignedBBFieldResolver, "f", "maxZ");
 
     @Expose
     public double minX;
@@ -55,6 +68,9 @@ public class BoundingBox {
     @Expose
     public double maxZ;
 
+    // Whether the box is currently held by a BoundingBoxPool, to catch releasing it twice
+    transient boolean pooled;
+
     public BoundingBox() {
     }
 
@@ -99,6 +115,52 @@ public class BoundingBox {
         return maxZ;
     }
 
+    public double getSizeX() {
+        return maxX - minX;
+    }
+
+    public double getSizeY() {
+        return maxY - minY;
+    }
+
+    public double getSizeZ() {
+        return maxZ - minZ;
+    }
+
+    /**
+     * Sets the values of this box, ordering min and max values like the constructor
+     *
+     * @return this box
+     */
+    public BoundingBox set(double x1, double y1, double z1, double x2, double y2, double z2) {
+        this.minX = Math.min(x1, x2);
+        this.minY = Math.min(y1, y2);
+        this.minZ = Math.min(z1, z2);
+        this.maxX = Math.max(x1, x2);
+        this.maxY = Math.max(y1, y2);
+        this.maxZ = Math.max(z1, z2);
+        return this;
+    }
+
+    /**
+     * Copies the values of another box into this box
+     *
+     * @return this box
+     */
+    public BoundingBox set(BoundingBox other) {
+        this.minX = other.minX;
+        this.minY = other.minY;
+        this.minZ = other.minZ;
+        this.maxX = other.maxX;
+        this.maxY = other.maxY;
+        this.maxZ = other.maxZ;
+        return this;
+    }
+
+    public BoundingBox copy() {
+        return new BoundingBox().set(this);
+    }
+
     public BoundingBox expand(double x, double y, double z) {
         double minX = this.minX - x;
         double minY = this.minY - y;
@@ -158,6 +220,92 @@ public class BoundingBox {
         return translate(vector.getX(), vector.getY(), vector.getZ());
     }
 
+    /**
+     * In-place version of {@link #expand(double, double, double)}
+     *
+     * @return this box
+     */
+    public BoundingBox expandSelf(double x, double y, double z) {
+        return set(this.minX - x, this.minY - y, this.minZ - z, this.maxX + x, this.maxY + y, this.maxZ + z);
+    }
+
+    public BoundingBox expandSelf(double d) {
+        return expandSelf(d, d, d);
+    }
+
+    /**
+     * In-place version of {@link #shrink(double, double, double)}
+     *
+     * @return this box
+     */
+    public BoundingBox shrinkSelf(double x, double y, double z) {
+        return expandSelf(-x, -y, -z);
+    }
+
+    public BoundingBox shrinkSelf(double d) {
+        return shrinkSelf(d, d, d);
+    }
+
+    /**
+     * In-place version of {@link #add(double, double, double)}
+     *
+     * @return this box
+     */
+    public BoundingBox addSelf(double x, double y, double z) {
+        if (x < 0.0D) {
+            this.minX += x;
+        } else if (x > 0.0D) {
+            this.maxX += x;
+        }
+
+        if (y < 0.0D) {
+            this.minY += y;
+        } else if (y > 0.0D) {
+            this.maxY += y;
+        }
+
+        if (z < 0.0D) {
+            this.minZ += z;
+        } else if (z > 0.0D) {
+            this.maxZ += z;
+        }
+        return this;
+    }
+
+    /**
+     * In-place version of {@link #translate(double, double, double)}
+     *
+     * @return this box
+     */
+    public BoundingBox translateSelf(double x, double y, double z) {
+        this.minX += x;
+        this.minY += y;
+        this.minZ += z;
+        this.maxX += x;
+        this.maxY += y;
+        this.maxZ += z;
+        return this;
+    }
+
+    public BoundingBox translateSelf(Vector3DDouble vector) {
+        return translateSelf(vector.getX(), vector.getY(), vector.getZ());
+    }
+
+    /**
+     * In-place version of {@link #combine(BoundingBox)}
+     *
+     * @return this box
+     */
+    public BoundingBox combineSelf(BoundingBox boundingBox) {
+        this.minX = Math.min(this.minX, boundingBox.minX);
+        this.minY = Math.min(this.minY, boundingBox.minY);
+        this.minZ = Math.min(this.minZ, boundingBox.minZ);
+        this.maxX = Math.max(this.maxX, boundingBox.maxX);
+        this.maxY = Math.max(this.maxY, boundingBox.maxY);
+        this.maxZ = Math.max(this.maxZ, boundingBox.maxZ);
+        return this;
+    }
+
     public boolean contains(double x, double y, double z) {
         return (x > this.minX && x < this.maxX) && (y > this.minY && y < this.maxY) && (z > this.minZ && z < this.maxZ);
     }
@@ -182,6 +330,183 @@ public class BoundingBox {
         return intersects(boundingBox.minX, boundingBox.minY, boundingBox.minZ, boundingBox.maxX, boundingBox.maxY, boundingBox.maxZ);
     }
 
+    /**
+     * Clips a movement of <code>other</code> on the x-axis against this box, as done for entity collisions
+     *
+     * @param other   the moving box
+     * @param offsetX the movement on the x-axis
+     * @return the movement which can be done without <code>other</code> intersecting this box
+     */
+    public double calculateXOffset(BoundingBox other, double offsetX) {
+        if (other.maxY > this.minY && other.minY < this.maxY && other.maxZ > this.minZ && other.minZ < this.maxZ) {
+            if (offsetX > 0.0D && other.maxX <= this.minX) {
+                offsetX = Math.min(offsetX, this.minX - other.maxX);
+            } else if (offsetX < 0.0D && other.minX >= this.maxX) {
+                offsetX = Math.max(offsetX, this.maxX - other.minX);
+            }
+        }
+        return offsetX;
+    }
+
+    /**
+     * Clips a movement of <code>other</code> on the y-axis against this box, as done for entity collisions
+     *
+     * @param other   the moving box
+     * @param offsetY the movement on the y-axis
+     * @return the movement which can be done without <code>other</code> intersecting this box
+     */
+    public double calculateYOffset(BoundingBox other, double offsetY) {
+        if (other.maxX > this.minX && other.minX < this.maxX && other.maxZ > this.minZ && other.minZ < this.maxZ) {
+            if (offsetY > 0.0D && other.maxY <= this.minY) {
+                offsetY = Math.min(offsetY, this.minY - other.maxY);
+            } else if (offsetY < 0.0D && other.minY >= this.maxY) {
+                offsetY = Math.max(offsetY, this.maxY - other.minY);
+            }
+        }
+        return offsetY;
+    }
+
+    /**
+     * Clips a movement of <code>other</code> on the z-axis against this box, as done for entity collisions
+     *
+     * @param other   the moving box
+     * @param offsetZ the movement on the z-axis
+     * @return the movement which can be done without <code>other</code> intersecting this box
+     */
+    public double calculateZOffset(BoundingBox other, double offsetZ) {
+        if (other.maxX > this.minX && other.minX < this.maxX && other.maxY > this.minY && other.minY < this.maxY) {
+            if (offsetZ > 0.0D && other.maxZ <= this.minZ) {
+                offsetZ = Math.min(offsetZ, this.minZ - other.maxZ);
+            } else if (offsetZ < 0.0D && other.minZ >= this.maxZ) {
+                offsetZ = Math.max(offsetZ, this.maxZ - other.minZ);
+            }
+        }
+        return offsetZ;
+    }
+
+    /**
+     * Sweeps this box along a movement and finds the first time it hits <code>other</code>
+     *
+     * @param other  the box to test against
+     * @param dx     movement on the x-axis
+     * @param dy     movement on the y-axis
+     * @param dz     movement on the z-axis
+     * @param normal array of length 3 to write the contact normal of <code>other</code>'s hit face into, or <code>null</code>. All zeros if the boxes already intersect or don't collide.
+     * @return time of impact from 0 (inclusive) to 1 (exclusive), as a fraction of the movement, or -1 if the boxes don't collide
+     */
+    public double sweep(BoundingBox other, double dx, double dy, double dz, double[] normal) {
+        if (normal != null) {
+            normal[0] = normal[1] = normal[2] = 0;
+        }
+        double entry = Double.NEGATIVE_INFINITY;
+        double exit = Double.POSITIVE_INFINITY;
+        int hitAxis = -1;
+        for (int axis = 0; axis < 3; axis++) {
+            double min = axis == 0 ? this.minX : axis == 1 ? this.minY : this.minZ;
+            double max = axis == 0 ? this.maxX : axis == 1 ? this.maxY : this.maxZ;
+            double otherMin = axis == 0 ? other.minX : axis == 1 ? other.minY : other.minZ;
+            double otherMax = axis == 0 ? other.maxX : axis == 1 ? other.maxY : other.maxZ;
+            double d = axis == 0 ? dx : axis == 1 ? dy : dz;
+            if (d == 0.0D) {
+                if (max <= otherMin || min >= otherMax) {
+                    return -1;
+                }
+                continue;
+            }
+            double axisEntry = d > 0.0D ? (otherMin - max) / d : (otherMax - min) / d;
+            double axisExit = d > 0.0D ? (otherMax - min) / d : (otherMin - max) / d;
+            if (axisEntry > entry) {
+                entry = axisEntry;
+                hitAxis = axis;
+            }
+            exit = Math.min(exit, axisExit);
+        }
+        if (hitAxis == -1) {
+            // Not moving, but overlapping on all axes
+            return 0;
+        }
+        // Only touching at the end of the movement isn't a hit, like in intersects()
+        if (entry >= exit || exit <= 0.0D || entry >= 1.0D) {
+            return -1;
+        }
+        if (entry < 0.0D) {
+            return 0;
+        }
+        if (normal != null) {
+            double d = hitAxis == 0 ? dx : hitAxis == 1 ? dy : dz;
+            normal[hitAxis] = d > 0.0D ? -1 : 1;
+        }
+        return entry;
+    }
+
+    /**
+     * Intersects a ray with this box
+     *
+     * @param originX     x-coordinate of the ray's origin
+     * @param originY     y-coordinate of the ray's origin
+     * @param originZ     z-coordinate of the ray's origin
+     * @param directionX  x-component of the ray's direction
+     * @param directionY  y-component of the ray's direction
+     * @param directionZ  z-component of the ray's direction
+     * @param maxDistance maximum distance along the ray, in multiples of the direction's length
+     * @return distance along the ray (in multiples of the direction's length) at which it enters this box, 0 if the origin is inside, or -1 if the ray doesn't hit the box
+     */
+    public double rayTrace(double originX, double originY, double originZ, double directionX, double directionY, double directionZ, double maxDistance) {
+        return rayTrace(originX, originY, originZ, directionX, directionY, directionZ, maxDistance, null);
+    }
+
+    /**
+     * Intersects a ray with this box
+     *
+     * @param normal array of length 3 to write the normal of the hit face into, or <code>null</code>. All zeros if the origin is inside the box or the ray misses it.
+     * @return distance along the ray (in multiples of the direction's length) at which it enters this box, 0 if the origin is inside, or -1 if the ray doesn't hit the box
+     * @see #rayTrace(double, double, double, double, double, double, double)
+     */
+    public double rayTrace(double originX, double originY, double originZ, double directionX, double directionY, double directionZ, double maxDistance, double[] normal) {
+        if (normal != null) {
+            normal[0] = normal[1] = normal[2] = 0;
+        }
+        double tMin = 0.0D;
+        double tMax = maxDistance;
+        int hitAxis = -1;
+        double hitSign = 0;
+        for (int axis = 0; axis < 3; axis++) {
+            double origin = axis == 0 ? originX : axis == 1 ? originY : originZ;
+            double direction = axis == 0 ? directionX : axis == 1 ? directionY : directionZ;
+            double min = axis == 0 ? this.minX : axis == 1 ? this.minY : this.minZ;
+            double max = axis == 0 ? this.maxX : axis == 1 ? this.maxY : this.maxZ;
+            if (direction == 0.0D) {
+                if (origin < min || origin > max) {
+                    return -1;
+                }
+                continue;
+            }
+            double inverse = 1.0D / direction;
+            double tNear = ((direction > 0.0D ? min : max) - origin) * inverse;
+            double tFar = ((direction > 0.0D ? max : min) - origin) * inverse;
+            if (tNear > tMin) {
+                tMin = tNear;
+                hitAxis = axis;
+                hitSign = direction > 0.0D ? -1 : 1;
+            }
+            tMax = Math.min(tMax, tFar);
+            if (tMin > tMax) {
+                return -1;
+            }
+        }
+        if (normal != null && hitAxis != -1) {
+            normal[hitAxis] = hitSign;
+        }
+        return tMin;
+    }
+
+    /**
+     * @return <code>true</code> if the line segment between the two points intersects this box
+     */
+    public boolean intersectsSegment(double x1, double y1, double z1, double x2, double y2, double z2) {
+        return rayTrace(x1, y1, z1, x2 - x1, y2 - y1, z2 - z1, 1.0D) >= 0;
+    }
+
     public BoundingBox combine(BoundingBox boundingBox) {
         double minX = Math.min(this.minX, boundingBox.minX);
         double minY = Math.min(this.minY, boundingBox.minY);
@@ -256,25 +581,149 @@ public class BoundingBox {
     }
 
     public Object toNMS() {
+        return toNMS(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    static Object toNMS(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
         try {
-            return AxisAlignedBB.getConstructor(double.class, double.class, double.class, double.class, double.class, double.class).newInstance(minX, minY, minZ, maxX, maxY, maxZ);
-        } catch (Exception e) {
+            return (Object) AxisAlignedBBConstructor.invokeExact(minX, minY, minZ, maxX, maxY, maxZ);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
             throw new RuntimeException(e);
         }
     }
 
     public static BoundingBox fromNMS(Object axisAlignedBB) {
+        return fromNMS(axisAlignedBB, new BoundingBox());
+    }
+
+    /**
+     * Copies the values of an NMS AxisAlignedBB into an existing BoundingBox
+     *
+     * @param axisAlignedBB NMS AxisAlignedBB
+     * @param dest          BoundingBox to write to
+     * @return the destination BoundingBox
+     */
+    public static BoundingBox fromNMS(Object axisAlignedBB, BoundingBox dest) {
+        try {
+            dest.minX = (double) AxisAlignedBBMinX.invokeExact(axisAlignedBB);
+            dest.minY = (double) AxisAlignedBBMinY.invokeExact(axisAlignedBB);
+            dest.minZ = (double) AxisAlignedBBMinZ.invokeExact(axisAlignedBB);
+            dest.maxX = (double) AxisAlignedBBMaxX.invokeExact(axisAlignedBB);
+            dest.maxY = (double) AxisAlignedBBMaxY.invokeExact(axisAlignedBB);
+            dest.maxZ = (double) AxisAlignedBBMaxZ.invokeExact(axisAlignedBB);
+            return dest;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Copies the values of an NMS AxisAlignedBB into an array, as minX, minY, minZ, maxX, maxY, maxZ
+     *
+     * @param axisAlignedBB NMS AxisAlignedBB
+     * @param dest          array to write to
+     * @param offset        index of the first value in the array
+     */
+    public static void fromNMS(Object axisAlignedBB, double[] dest, int offset) {
         try {
-            double a = (double) AxisAlignedBBFieldResolver.resolve("a", "minX").get(axisAlignedBB);
-            double b = (double) AxisAlignedBBFieldResolver.resolve("b", "minY").get(axisAlignedBB);
-            double c = (double) AxisAlignedBBFieldResolver.resolve("c", "minZ").get(axisAlignedBB);
-            double d = (double) AxisAlignedBBFieldResolver.resolve("d", "maxX").get(axisAlignedBB);
-            double e = (double) AxisAlignedBBFieldResolver.resolve("e", "maxY").get(axisAlignedBB);
-            double f = (double) AxisAlignedBBFieldResolver.resolve("f", "maxZ").get(axisAlignedBB);
-
-            return new BoundingBox(a, b, c, d, e, f);
-        } catch (Exception e) {
+            dest[offset] = (double) AxisAlignedBBMinX.invokeExact(axisAlignedBB);
+            dest[offset + 1] = (double) AxisAlignedBBMinY.invokeExact(axisAlignedBB);
+            dest[offset + 2] = (double) AxisAlignedBBMinZ.invokeExact(axisAlignedBB);
+            dest[offset + 3] = (double) AxisAlignedBBMaxX.invokeExact(axisAlignedBB);
+            dest[offset + 4] = (double) AxisAlignedBBMaxY.invokeExact(axisAlignedBB);
+            dest[offset + 5] = (double) AxisAlignedBBMaxZ.invokeExact(axisAlignedBB);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Copies the values of multiple NMS AxisAlignedBBs into an array, 6 values per box in the same order as {@link #fromNMS(Object, double[], int)}
+     *
+     * @param axisAlignedBBs NMS AxisAlignedBBs
+     * @param dest           array to write to, at least 6 times the length of the input
+     */
+    public static void fromNMS(Object[] axisAlignedBBs, double[] dest) {
+        if (dest.length < axisAlignedBBs.length * 6) {
+            throw new IllegalArgumentException("Destination array too small for " + axisAlignedBBs.length + " boxes (" + dest.length + ")");
+        }
+        for (int i = 0; i < axisAlignedBBs.length; i++) {
+            fromNMS(axisAlignedBBs[i], dest, i * 6);
+        }
+    }
+
+    // BoundingBox can also be used without a server (e.g. in benchmarks), in which case the NMS conversions are unavailable
+    static Class<?> resolveAxisAlignedBB() {
+        try {
+            return nmsClassResolver.resolveSilent("world.phys.AxisAlignedBB", "AxisAlignedBB");
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    static MethodHandle resolveConstructor(Class<?> axisAlignedBB) {
+        if (axisAlignedBB == null) {
+            return null;
+        }
+        try {
+            return MethodHandles.lookup().unreflectConstructor(axisAlignedBB.getConstructor(double.class, double.class, double.class, double.class, double.class, double.class))
+                    .asType(MethodType.methodType(Object.class, double.class, double.class, double.class, double.class, double.class, double.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    static MethodHandle resolveGetter(FieldResolver fieldResolver, String... names) {
+        if (fieldResolver == null) {
+            return null;
+        }
+        try {
+            return MethodHandles.lookup().unreflectGetter(fieldResolver.resolve(names)).asType(MethodType.methodType(double.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Repeatedly merges pairs of boxes which share their extent on two axes and touch on the third
+     *
+     * @param boxes 6 values per box
+     * @return the merged boxes
+     */
+    static double[] mergeBoxes(double[] boxes) {
+        int count = boxes.length / 6;
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            search:
+            for (int i = 0; i < count; i++) {
+                for (int j = i + 1; j < count; j++) {
+                    int a = i * 6;
+                    int b = j * 6;
+                    for (int axis = 0; axis < 3; axis++) {
+                        int u = (axis + 1) % 3;
+                        int v = (axis + 2) % 3;
+                        if (boxes[a + u] == boxes[b + u] && boxes[a + 3 + u] == boxes[b + 3 + u] && boxes[a + v] == boxes[b + v] && boxes[a + 3 + v] == boxes[b + 3 + v]//
+                                && (boxes[a + 3 + axis] == boxes[b + axis] || boxes[b + 3 + axis] == boxes[a + axis])) {
+                            boxes[a + axis] = Math.min(boxes[a + axis], boxes[b + axis]);
+                            boxes[a + 3 + axis] = Math.max(boxes[a + 3 + axis], boxes[b + 3 + axis]);
+                            // Move the last box into the free slot
+                            count--;
+                            System.arraycopy(boxes, count * 6, boxes, b, 6);
+                            merged = true;
+                            break search;
+                        }
+                    }
+                }
+            }
+        }
+        return count * 6 == boxes.length ? boxes : Arrays.copyOf(boxes, count * 6);
+    }
+
 }
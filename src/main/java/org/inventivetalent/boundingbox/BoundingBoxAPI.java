@@ -29,9 +29,10 @@
 package org.inventivetalent.boundingbox;
 
 import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Entity;
-import org.inventivetalent.reflection.accessor.FieldAccessor;
 import org.inventivetalent.reflection.minecraft.Minecraft;
 import org.inventivetalent.reflection.minecraft.MinecraftVersion;
 import org.inventivetalent.reflection.resolver.ClassResolver;
@@ -39,7 +40,23 @@ import org.inventivetalent.reflection.resolver.FieldResolver;
 import org.inventivetalent.reflection.resolver.MethodResolver;
 import org.inventivetalent.reflection.resolver.ResolverQuery;
 import org.inventivetalent.reflection.resolver.minecraft.NMSClassResolver;
-import org.inventivetalent.vectors.d3.Vector3DDouble;
+import org.inventivetalent.reflection.resolver.minecraft.OBCClassResolver;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class BoundingBoxAPI {
 
@@ -55,8 +72,6 @@ public class BoundingBoxAPI {
     static Class<?> IBlockAccess = nmsClassResolver.resolveSilent("world.level.IBlockAccess", "IBlockAccess");
     static Class<?> BlockData = nmsClassResolver.resolveSilent("world.level.block.state.BlockBase$BlockData", "BlockBase$BlockData");
     static Class<?> AxisAlignedBB = nmsClassResolver.resolveSilent("world.phys.AxisAlignedBB", "AxisAlignedBB");
-    static Class<?> VoxelShape;
-    static Class<?> VoxelShapeCollision;
 
     static FieldResolver EntityFieldResolver = new FieldResolver(Entity);
     static FieldResolver BlockFieldResolver = new FieldResolver(Block);
@@ -65,111 +80,663 @@ public class BoundingBoxAPI {
     static MethodResolver ChunkMethodResolver = new MethodResolver(Chunk);
     static MethodResolver IBlockDataMethodResolver = new MethodResolver(IBlockData);
     static MethodResolver EntityMethodResolver = new MethodResolver(Entity);
-    static MethodResolver BlockDataMethodResolver;
-    static MethodResolver VoxelShapeMethodResolver;
-    static MethodResolver VoxelShapeCollisionMethodResolver;
+
+    static final ThreadLocal<Location> SCRATCH_LOCATION = ThreadLocal.withInitial(() -> new Location(null, 0, 0, 0));
+
+    // getHandle() of each CraftBukkit class (CraftEntity subclasses, CraftChunk, CraftWorld), looked up once instead of on every call
+    static final ClassValue<MethodHandle> GET_HANDLE = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                Method getHandle = type.getMethod("getHandle");
+                getHandle.setAccessible(true);
+                return MethodHandles.lookup().unreflect(getHandle).asType(MethodType.methodType(Object.class, Object.class));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException(type.getName() + " has no getHandle()", e);
+            }
+        }
+    };
+
+    static final Logger LOGGER = Logger.getLogger(BoundingBoxAPI.class.getName());
+
+    // Selected once for the running version, so every call site only ever sees a single implementation
+    static final EntityBoxStrategy ENTITY_BOX_STRATEGY;
+    static final Throwable ENTITY_BOX_ERROR;
+    static final BlockShapeStrategy BLOCK_SHAPE_STRATEGY;
+    static final Throwable BLOCK_SHAPE_ERROR;
+
+    static final BlockShapeCache BLOCK_SHAPE_CACHE = new BlockShapeCache();
+
+    // Optional (null if they can't be resolved), only used to speed up region scans
+    static final MethodHandle MUTABLE_BLOCK_POSITION_CONSTRUCTOR = resolveMutableBlockPositionConstructor();
+    static final MethodHandle MUTABLE_BLOCK_POSITION_SETTER = resolveMutableBlockPositionSetter();
+    static final MethodHandle CHUNK_SECTIONS_GETTER = resolveChunkSectionsGetter();
+    static final MethodHandle CHUNK_SECTION_EMPTY = resolveChunkSectionEmpty();
+    static final MethodHandle WORLD_MIN_HEIGHT = resolveWorldMinHeight();
+    // Optional, without it the block shape cache is bypassed
+    static final MethodHandle STATE_MATERIAL = resolveStateMaterial();
+
+    static {
+        EntityBoxStrategy entityBoxStrategy;
+        Throwable entityBoxError;
+        try {
+            entityBoxStrategy = EntityBoxStrategy.select();
+            entityBoxError = null;
+        } catch (Throwable e) {
+            entityBoxStrategy = null;
+            entityBoxError = e;
+            LOGGER.log(Level.WARNING, "Entity bounding boxes are not supported on " + MinecraftVersion.VERSION, e);
+        }
+        ENTITY_BOX_STRATEGY = entityBoxStrategy;
+        ENTITY_BOX_ERROR = entityBoxError;
+
+        BlockShapeStrategy blockShapeStrategy;
+        Throwable blockShapeError;
+        try {
+            blockShapeStrategy = BlockShapeStrategy.select();
+            blockShapeError = null;
+        } catch (Throwable e) {
+            blockShapeStrategy = null;
+            blockShapeError = e;
+            LOGGER.log(Level.WARNING, "Block bounding boxes are not supported on " + MinecraftVersion.VERSION, e);
+        }
+        BLOCK_SHAPE_STRATEGY = blockShapeStrategy;
+        BLOCK_SHAPE_ERROR = blockShapeError;
+    }
+
+    static MethodHandle resolveMutableBlockPositionConstructor() {
+        try {
+            Class<?> mutableBlockPosition = nmsClassResolver.resolve("core.BlockPosition$MutableBlockPosition", "BlockPosition$MutableBlockPosition");
+            return MethodHandles.lookup().unreflectConstructor(mutableBlockPosition.getConstructor())
+                    .asType(MethodType.methodType(Object.class));
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    static MethodHandle resolveMutableBlockPositionSetter() {
+        try {
+            Class<?> mutableBlockPosition = nmsClassResolver.resolve("core.BlockPosition$MutableBlockPosition", "BlockPosition$MutableBlockPosition");
+            String setterName = MinecraftVersion.VERSION.newerThan(Minecraft.Version.v1_14_R1) ? "d" : "c";
+            return MethodHandles.lookup().unreflect(new MethodResolver(mutableBlockPosition).resolve(new ResolverQuery(setterName, int.class, int.class, int.class)))
+                    .asType(MethodType.methodType(Object.class, Object.class, int.class, int.class, int.class));
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    static MethodHandle resolveChunkSectionsGetter() {
+        try {
+            Class<?> chunkSection = nmsClassResolver.resolve("world.level.chunk.ChunkSection", "ChunkSection");
+            Class<?> sectionArray = Array.newInstance(chunkSection, 0).getClass();
+            for (Class<?> clazz = Chunk; clazz != null; clazz = clazz.getSuperclass()) {
+                for (Field field : clazz.getDeclaredFields()) {
+                    if (field.getType() == sectionArray && !Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        return MethodHandles.lookup().unreflectGetter(field).asType(MethodType.methodType(Object[].class, Object.class));
+                    }
+                }
+            }
+            return null;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return {@code boolean isEmpty(ChunkSection)}, or null if sections are only skipped if they're missing
+     */
+    static MethodHandle resolveChunkSectionEmpty() {
+        try {
+            Class<?> chunkSection = nmsClassResolver.resolve("world.level.chunk.ChunkSection", "ChunkSection");
+            if (MinecraftVersion.VERSION.newerThan(Minecraft.Version.v1_17_R1)) {
+                /// boolean hasOnlyAir()
+                Method isEmpty = checkReturnType(new MethodResolver(chunkSection).resolve(new ResolverQuery("c")), boolean.class);
+                return MethodHandles.lookup().unreflect(isEmpty).asType(MethodType.methodType(boolean.class, Object.class));
+            }
+            Field nonEmptyBlockCount = new FieldResolver(chunkSection).resolve("nonEmptyBlockCount");
+            MethodHandle getter = MethodHandles.lookup().unreflectGetter(nonEmptyBlockCount).asType(MethodType.methodType(int.class, Object.class));
+            return MethodHandles.filterReturnValue(getter, MethodHandles.lookup().findStatic(BoundingBoxAPI.class, "isZero", MethodType.methodType(boolean.class, int.class)));
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    static MethodHandle resolveWorldMinHeight() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(org.bukkit.World.class, "getMinHeight", MethodType.methodType(int.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return {@code Material getMaterial(IBlockData)}, through the NMS block and CraftMagicNumbers
+     */
+    static MethodHandle resolveStateMaterial() {
+        try {
+            MethodResolver blockDataMethodResolver = BlockData != null ? new MethodResolver(BlockData) : IBlockDataMethodResolver;
+            MethodHandle getBlock = generic(MethodHandles.lookup().unreflect(checkReturnType(blockDataMethodResolver.resolve("getBlock", "b"), Block)));
+            Method getMaterial = new OBCClassResolver().resolve("util.CraftMagicNumbers").getMethod("getMaterial", Block);
+            return MethodHandles.filterReturnValue(getBlock, MethodHandles.lookup().unreflect(getMaterial).asType(MethodType.methodType(Material.class, Object.class)));
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param iBlockData NMS block state
+     * @return the state's Material, or null if it can't be determined. Doesn't access the world, so it's safe to call off the main thread.
+     */
+    static Material getStateMaterial(Object iBlockData) {
+        if (STATE_MATERIAL == null) {
+            return null;
+        }
+        try {
+            return (Material) STATE_MATERIAL.invokeExact(iBlockData);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Resolves all version-specific handles, so a missing or changed mapping fails here (e.g. in a plugin's onEnable) instead of on the first lookup.
+     *
+     * @throws IllegalStateException if bounding boxes aren't supported on the running version
+     */
+    public static void init() {
+        checkEntitySupported();
+        checkBlockShapeSupported();
+    }
+
+    /**
+     * @return the NMS handle of a CraftBukkit object, like {@link Minecraft#getHandle(Object)} but through a cached handle per class
+     */
+    static Object getHandle(Object object) throws Throwable {
+        return (Object) GET_HANDLE.get(object.getClass()).invokeExact(object);
+    }
+
+    static List<?> singletonOrEmpty(Object axisAlignedBB) {
+        return axisAlignedBB == null ? Collections.emptyList() : Collections.singletonList(axisAlignedBB);
+    }
+
+    static MethodHandle generic(MethodHandle handle) {
+        return handle.asType(handle.type().generic());
+    }
+
+    static Method checkReturnType(Method method, Class<?> type) throws NoSuchMethodException {
+        if (type == null || !type.isAssignableFrom(method.getReturnType())) {
+            throw new NoSuchMethodException(method + " does not return " + (type == null ? "an unresolved class" : type.getName()));
+        }
+        return method;
+    }
 
     public static BoundingBox getBoundingBox(Entity entity) {
-        return getAbsoluteBoundingBox(entity).translate(new Vector3DDouble(entity.getLocation().toVector().multiply(-1)));
+        return getBoundingBox(entity, new BoundingBox());
+    }
+
+    /**
+     * Writes the bounding box of the entity, relative to its location, into an existing BoundingBox
+     *
+     * @param entity Entity
+     * @param dest   BoundingBox to write to
+     * @return the destination BoundingBox
+     */
+    public static BoundingBox getBoundingBox(Entity entity, BoundingBox dest) {
+        getAbsoluteBoundingBox(entity, dest);
+        Location location = entity.getLocation(SCRATCH_LOCATION.get());
+        dest.minX -= location.getX();
+        dest.minY -= location.getY();
+        dest.minZ -= location.getZ();
+        dest.maxX -= location.getX();
+        dest.maxY -= location.getY();
+        dest.maxZ -= location.getZ();
+        // Don't keep the world alive through the thread's scratch location
+        location.setWorld(null);
+        return dest;
     }
 
     public static BoundingBox getAbsoluteBoundingBox(Entity entity) {
+        return getAbsoluteBoundingBox(entity, new BoundingBox());
+    }
+
+    /**
+     * Writes the absolute bounding box of the entity into an existing BoundingBox
+     *
+     * @param entity Entity
+     * @param dest   BoundingBox to write to
+     * @return the destination BoundingBox
+     */
+    public static BoundingBox getAbsoluteBoundingBox(Entity entity, BoundingBox dest) {
+        return BoundingBox.fromNMS(getEntityAxisAlignedBB(entity), dest);
+    }
+
+    /**
+     * Writes the absolute bounding box of the entity into an array, as minX, minY, minZ, maxX, maxY, maxZ
+     *
+     * @param entity Entity
+     * @param dest   array to write to
+     * @param offset index of the first value in the array
+     */
+    public static void getAbsoluteBoundingBox(Entity entity, double[] dest, int offset) {
+        BoundingBox.fromNMS(getEntityAxisAlignedBB(entity), dest, offset);
+    }
+
+    static Object getEntityAxisAlignedBB(Entity entity) {
+        return getEntityAxisAlignedBB(entity, BoundingBoxMetrics.Metric.ENTITY_BOUNDING_BOX);
+    }
+
+    /**
+     * @param metric metric to record the read under
+     */
+    static Object getEntityAxisAlignedBB(Entity entity, BoundingBoxMetrics.Metric metric) {
+        checkEntitySupported();
+        long start = BoundingBoxMetrics.start();
         try {
-            FieldAccessor field = EntityFieldResolver.resolveByLastTypeAccessor(AxisAlignedBB);
-            return field.get(Minecraft.getHandle(entity));
-        } catch (RuntimeException e) {
+            return ENTITY_BOX_STRATEGY.getAxisAlignedBB(getHandle(entity));
+        } catch (RuntimeException | Error e) {
             throw e;
-        } catch (Exception e) {
+        } catch (Throwable e) {
             throw new RuntimeException(e);
+        } finally {
+            BoundingBoxMetrics.stop(metric, start);
         }
     }
 
     public static void setBoundingBox(Entity entity, BoundingBox boundingBox) {
+        checkEntitySupported();
+        long start = BoundingBoxMetrics.start();
         try {
-            FieldAccessor field = EntityFieldResolver.resolveByLastTypeAccessor(AxisAlignedBB);
-            field.set(Minecraft.getHandle(entity), boundingBox.toNMS());
-        } catch (RuntimeException e) {
+            ENTITY_BOX_STRATEGY.setAxisAlignedBB(getHandle(entity), boundingBox.toNMS());
+        } catch (RuntimeException | Error e) {
             throw e;
-        } catch (Exception e) {
+        } catch (Throwable e) {
             throw new RuntimeException(e);
+        } finally {
+            BoundingBoxMetrics.stop(BoundingBoxMetrics.Metric.ENTITY_SET_BOUNDING_BOX, start);
         }
     }
 
     public static void setSize(Entity entity, float width, float length) {
+        checkEntitySupported();
+        long start = BoundingBoxMetrics.start();
         try {
-            EntityMethodResolver.resolve(new ResolverQuery("setSize", float.class, float.class)).invoke(Minecraft.getHandle(entity), width, length);
-        } catch (RuntimeException e) {
+            ENTITY_BOX_STRATEGY.setSize(getHandle(entity), width, length);
+        } catch (RuntimeException | Error e) {
             throw e;
-        } catch (Exception e) {
+        } catch (Throwable e) {
             throw new RuntimeException(e);
+        } finally {
+            BoundingBoxMetrics.stop(BoundingBoxMetrics.Metric.ENTITY_SET_SIZE, start);
         }
     }
 
-    public static BoundingBox getBoundingBox(Block block) {
+    /**
+     * Sets the bounding boxes of multiple entities
+     *
+     * @param entities      entities
+     * @param boundingBoxes new bounding box for each entity, at the same index
+     */
+    public static void setBoundingBoxes(Entity[] entities, BoundingBox[] boundingBoxes) {
+        if (entities.length != boundingBoxes.length) {
+            throw new IllegalArgumentException("Got " + entities.length + " entities but " + boundingBoxes.length + " bounding boxes");
+        }
+        checkEntitySupported();
+        long start = BoundingBoxMetrics.start();
+        try {
+            for (int i = 0; i < entities.length; i++) {
+                BoundingBox boundingBox = boundingBoxes[i];
+                ENTITY_BOX_STRATEGY.setAxisAlignedBB(getHandle(entities[i]), BoundingBox.toNMS(boundingBox.minX, boundingBox.minY, boundingBox.minZ, boundingBox.maxX, boundingBox.maxY, boundingBox.maxZ));
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        } finally {
+            BoundingBoxMetrics.stop(BoundingBoxMetrics.Metric.ENTITY_SET_BOUNDING_BOX_BATCH, start);
+        }
+    }
+
+    /**
+     * Sets the bounding boxes of multiple entities
+     *
+     * @param entities      entities
+     * @param boundingBoxes 6 values per entity, as minX, minY, minZ, maxX, maxY, maxZ
+     */
+    public static void setBoundingBoxes(Entity[] entities, double[] boundingBoxes) {
+        if (entities.length * 6 != boundingBoxes.length) {
+            throw new IllegalArgumentException("Got " + entities.length + " entities but " + boundingBoxes.length + " bounding box values");
+        }
+        checkEntitySupported();
+        long start = BoundingBoxMetrics.start();
         try {
-            Location location = block.getLocation();
+            for (int i = 0, o = 0; i < entities.length; i++, o += 6) {
+                ENTITY_BOX_STRATEGY.setAxisAlignedBB(getHandle(entities[i]), BoundingBox.toNMS(boundingBoxes[o], boundingBoxes[o + 1], boundingBoxes[o + 2], boundingBoxes[o + 3], boundingBoxes[o + 4], boundingBoxes[o + 5]));
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        } finally {
+            BoundingBoxMetrics.stop(BoundingBoxMetrics.Metric.ENTITY_SET_BOUNDING_BOX_BATCH, start);
+        }
+    }
 
-            Object blockPosition = BlockPosition.getConstructor(double.class, double.class, double.class).newInstance(location.getX(), location.getY(), location.getZ());
+    /**
+     * Sets the bounding boxes of multiple entities
+     *
+     * @param boundingBoxes new bounding box by entity
+     */
+    public static void setBoundingBoxes(Map<? extends Entity, BoundingBox> boundingBoxes) {
+        checkEntitySupported();
+        long start = BoundingBoxMetrics.start();
+        try {
+            for (Map.Entry<? extends Entity, BoundingBox> entry : boundingBoxes.entrySet()) {
+                BoundingBox boundingBox = entry.getValue();
+                ENTITY_BOX_STRATEGY.setAxisAlignedBB(getHandle(entry.getKey()), BoundingBox.toNMS(boundingBox.minX, boundingBox.minY, boundingBox.minZ, boundingBox.maxX, boundingBox.maxY, boundingBox.maxZ));
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        } finally {
+            BoundingBoxMetrics.stop(BoundingBoxMetrics.Metric.ENTITY_SET_BOUNDING_BOX_BATCH, start);
+        }
+    }
 
-            ResolverQuery getTypeQuery = new ResolverQuery(MinecraftVersion.VERSION.newerThan(Minecraft.Version.v1_18_R1) ? "a_" : MinecraftVersion.VERSION.newerThan(Minecraft.Version.v1_13_R1) ? "getType" : "getBlockData", BlockPosition);
-            Object iBlockData = ChunkMethodResolver.resolve(getTypeQuery).invoke(Minecraft.getHandle(block.getChunk()), blockPosition);
-            Object iBlockAccess = Minecraft.getHandle(location.getWorld());
-            MethodResolver blockResolver = IBlockDataMethodResolver;
-            if (MinecraftVersion.VERSION.newerThan(Minecraft.Version.v1_16_R1)) {
-                if (BlockDataMethodResolver == null) {
-                    BlockDataMethodResolver = new MethodResolver(BlockData);
-                }
-                blockResolver = BlockDataMethodResolver;
+    /**
+     * Sets the same size for multiple entities
+     */
+    public static void setSize(Iterable<? extends Entity> entities, float width, float length) {
+        checkEntitySupported();
+        long start = BoundingBoxMetrics.start();
+        try {
+            for (Entity entity : entities) {
+                ENTITY_BOX_STRATEGY.setSize(getHandle(entity), width, length);
             }
-            Object nmsBlock;
-            if (MinecraftVersion.VERSION.newerThan(Minecraft.Version.v1_18_R1)) {
-                nmsBlock = blockResolver.resolveSignature("Block b()").invoke(iBlockData);
-            } else {
-                nmsBlock = blockResolver.resolve("getBlock", "b").invoke(iBlockData);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        } finally {
+            BoundingBoxMetrics.stop(BoundingBoxMetrics.Metric.ENTITY_SET_SIZE_BATCH, start);
+        }
+    }
+
+    /**
+     * Sets the sizes of multiple entities
+     *
+     * @param entities entities
+     * @param widths   new width for each entity, at the same index
+     * @param lengths  new length for each entity, at the same index
+     */
+    public static void setSizes(Entity[] entities, float[] widths, float[] lengths) {
+        if (entities.length != widths.length || entities.length != lengths.length) {
+            throw new IllegalArgumentException("Got " + entities.length + " entities but " + widths.length + " widths and " + lengths.length + " lengths");
+        }
+        checkEntitySupported();
+        long start = BoundingBoxMetrics.start();
+        try {
+            for (int i = 0; i < entities.length; i++) {
+                ENTITY_BOX_STRATEGY.setSize(getHandle(entities[i]), widths[i], lengths[i]);
             }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        } finally {
+            BoundingBoxMetrics.stop(BoundingBoxMetrics.Metric.ENTITY_SET_SIZE_BATCH, start);
+        }
+    }
 
-            Object axisAlignedBB;
-            if (MinecraftVersion.VERSION.newerThan(Minecraft.Version.v1_13_R1)) {
-                if (VoxelShape == null) {
-                    VoxelShape = nmsClassResolver.resolveSilent("world.phys.shapes.VoxelShape", "VoxelShape");
-                }
-                if (VoxelShapeMethodResolver == null) {
-                    VoxelShapeMethodResolver = new MethodResolver(VoxelShape);
-                }
-                Object voxelShape;
-                if (MinecraftVersion.VERSION.newerThan(Minecraft.Version.v1_14_R1)) {
-                    if (VoxelShapeCollision == null) {
-                        VoxelShapeCollision = nmsClassResolver.resolveSilent("world.phys.shapes.VoxelShapeCollision", "VoxelShapeCollision");
-                    }
-                    if (VoxelShapeCollisionMethodResolver == null) {
-                        VoxelShapeCollisionMethodResolver = new MethodResolver(VoxelShapeCollision);
+    /**
+     * @return the bounding box of the block, relative to the block. Blocks without a shape (e.g. air) return an empty box at 0,0,0.
+     */
+    public static BoundingBox getBoundingBox(Block block) {
+        double[] shape = getBlockShape(block);
+        if (shape.length == 0) {
+            return new BoundingBox();
+        }
+        return new BoundingBox(shape[0], shape[1], shape[2], shape[3], shape[4], shape[5]);
+    }
+
+    /**
+     * @return the relative bounding box values of the block, as minX, minY, minZ, maxX, maxY, maxZ, followed by the same values for each box of the shape, or an empty array if the block has no shape. The returned array may be shared and must not be modified.
+     */
+    static double[] getBlockShape(Block block) {
+        checkBlockShapeSupported();
+        long start = BoundingBoxMetrics.start();
+        try {
+            Object blockPosition = BLOCK_SHAPE_STRATEGY.newBlockPosition(block.getX(), block.getY(), block.getZ());
+            Object iBlockData = BLOCK_SHAPE_STRATEGY.getBlockData(getHandle(block.getChunk()), blockPosition);
+            return getBlockShape(block.getWorld(), getHandle(block.getWorld()), block.getX(), block.getY(), block.getZ(), iBlockData, blockPosition);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        } finally {
+            BoundingBoxMetrics.stop(BoundingBoxMetrics.Metric.BLOCK_BOUNDING_BOX, start);
+        }
+    }
+
+    static double[] getBlockShape(World world, Object nmsWorld, int x, int y, int z, Object iBlockData, Object blockPosition) throws Throwable {
+        boolean cacheable = BLOCK_SHAPE_STRATEGY.isCacheable();
+        double[] shape = cacheable ? BLOCK_SHAPE_CACHE.get(world, x, y, z, iBlockData) : null;
+        if (shape == null) {
+            shape = BLOCK_SHAPE_STRATEGY.getShape(iBlockData, nmsWorld, blockPosition, x, y, z);
+            if (cacheable) {
+                BLOCK_SHAPE_CACHE.put(world, x, y, z, iBlockData, shape);
+            }
+        }
+        return shape;
+    }
+
+    /**
+     * Gets all boxes making up the block's shape (e.g. the individual parts of stairs or fences), relative to the block
+     *
+     * @param block Block
+     * @return 6 values per box, as minX, minY, minZ, maxX, maxY, maxZ. Empty if the block has no shape.
+     */
+    public static double[] getShape(Block block) {
+        return getShape(block, false);
+    }
+
+    /**
+     * Gets all boxes making up the block's shape (e.g. the individual parts of stairs or fences), relative to the block
+     *
+     * @param block Block
+     * @param merge whether to merge adjacent boxes which together form a box
+     * @return 6 values per box, as minX, minY, minZ, maxX, maxY, maxZ. Empty if the block has no shape.
+     */
+    public static double[] getShape(Block block, boolean merge) {
+        double[] shape = getBlockShape(block);
+        if (shape.length == 0) {
+            return shape;
+        }
+        double[] boxes = Arrays.copyOfRange(shape, 6, shape.length);
+        return merge ? BoundingBox.mergeBoxes(boxes) : boxes;
+    }
+
+    /**
+     * Gets all boxes making up the block's shape (e.g. the individual parts of stairs or fences), relative to the block
+     *
+     * @param block Block
+     * @return the boxes, empty if the block has no shape
+     */
+    public static List<BoundingBox> getBoundingBoxes(Block block) {
+        double[] shape = getBlockShape(block);
+        List<BoundingBox> list = new ArrayList<>(Math.max(shape.length / 6 - 1, 0));
+        for (int o = 6; o < shape.length; o += 6) {
+            list.add(new BoundingBox(shape[o], shape[o + 1], shape[o + 2], shape[o + 3], shape[o + 4], shape[o + 5]));
+        }
+        return list;
+    }
+
+    /**
+     * Gets the absolute bounding boxes of all blocks in the region which have a shape, without loading any chunks.
+     * <p>
+     * Includes all blocks whose 1x1x1 cell overlaps the region. Must be called on the main thread.
+     *
+     * @param world    World
+     * @param region   absolute region
+     * @param consumer consumer for the bounding boxes
+     */
+    public static void getBoundingBoxes(World world, BoundingBox region, BlockBoundingBoxConsumer consumer) {
+        getBoundingBoxes(world, region, false, consumer);
+    }
+
+    /**
+     * Gets the absolute bounding boxes of all blocks in the region which have a shape, without loading any chunks.
+     * <p>
+     * Includes all blocks whose 1x1x1 cell overlaps the region. Must be called on the main thread.
+     *
+     * @param world    World
+     * @param region   absolute region
+     * @param precise  whether to return every box making up each block's shape, instead of a single box per block
+     * @param consumer consumer for the bounding boxes
+     */
+    public static void getBoundingBoxes(World world, BoundingBox region, boolean precise, BlockBoundingBoxConsumer consumer) {
+        checkBlockShapeSupported();
+
+        int minY = getMinHeight(world);
+        int minX = (int) Math.floor(region.minX);
+        int y0 = Math.max((int) Math.floor(region.minY), minY);
+        int minZ = (int) Math.floor(region.minZ);
+        int maxX = Math.max((int) Math.ceil(region.maxX) - 1, minX);
+        int y1 = Math.min(Math.max((int) Math.ceil(region.maxY) - 1, y0), world.getMaxHeight() - 1);
+        int maxZ = Math.max((int) Math.ceil(region.maxZ) - 1, minZ);
+        if (y0 > y1) {
+            return;
+        }
+
+        long start = BoundingBoxMetrics.start();
+        try {
+            Object nmsWorld = getHandle(world);
+            boolean mutable = MUTABLE_BLOCK_POSITION_CONSTRUCTOR != null && MUTABLE_BLOCK_POSITION_SETTER != null;
+            Object blockPosition = mutable ? (Object) MUTABLE_BLOCK_POSITION_CONSTRUCTOR.invokeExact() : null;
+            // Shapes of states which only depend on the state, so the shared cache (and its lock) is only hit once per state and scan
+            boolean cacheable = BLOCK_SHAPE_STRATEGY.isCacheable() && BLOCK_SHAPE_CACHE.isEnabled();
+            Map<Object, double[]> stateShapes = new IdentityHashMap<>();
+
+            for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+                for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                    if (!world.isChunkLoaded(chunkX, chunkZ)) {
+                        continue;
                     }
-                    /// static VoxelShapeCollision a()
-                    Object collision = VoxelShapeCollisionMethodResolver.resolveSignature("VoxelShapeCollision a()").invoke(null);
-                    if (MinecraftVersion.VERSION.newerThan(Minecraft.Version.v1_16_R1)) {
-                        voxelShape = BlockDataMethodResolver.resolve(new ResolverQuery("a", IBlockAccess, BlockPosition, VoxelShapeCollision)).invoke(iBlockData, iBlockAccess, blockPosition, collision);
-                    } else {
-                        voxelShape = BlockMethodResolver.resolve(new ResolverQuery("a", IBlockData, IBlockAccess, BlockPosition, VoxelShapeCollision)).invoke(nmsBlock, iBlockData, iBlockAccess, blockPosition, collision);
+                    Object chunk = getHandle(world.getChunkAt(chunkX, chunkZ));
+                    Object[] sections = CHUNK_SECTIONS_GETTER != null ? (Object[]) CHUNK_SECTIONS_GETTER.invokeExact(chunk) : null;
+
+                    int x0 = Math.max(minX, chunkX << 4);
+                    int x1 = Math.min(maxX, (chunkX << 4) + 15);
+                    int z0 = Math.max(minZ, chunkZ << 4);
+                    int z1 = Math.min(maxZ, (chunkZ << 4) + 15);
+
+                    for (int sectionY = y0 >> 4; sectionY <= y1 >> 4; sectionY++) {
+                        if (sections != null) {
+                            int sectionIndex = sectionY - (minY >> 4);
+                            if (sectionIndex >= 0 && sectionIndex < sections.length) {
+                                Object section = sections[sectionIndex];
+                                // Missing before 1.14, but may also exist and be empty
+                                if (section == null || CHUNK_SECTION_EMPTY != null && (boolean) CHUNK_SECTION_EMPTY.invokeExact(section)) {
+                                    continue;
+                                }
+                            }
+                        }
+                        int sy0 = Math.max(y0, sectionY << 4);
+                        int sy1 = Math.min(y1, (sectionY << 4) + 15);
+
+                        for (int y = sy0; y <= sy1; y++) {
+                            for (int z = z0; z <= z1; z++) {
+                                for (int x = x0; x <= x1; x++) {
+                                    if (mutable) {
+                                        blockPosition = (Object) MUTABLE_BLOCK_POSITION_SETTER.invokeExact(blockPosition, x, y, z);
+                                    } else {
+                                        blockPosition = BLOCK_SHAPE_STRATEGY.newBlockPosition(x, y, z);
+                                    }
+                                    Object iBlockData = BLOCK_SHAPE_STRATEGY.getBlockData(chunk, blockPosition);
+                                    double[] shape = stateShapes.get(iBlockData);
+                                    if (shape == null) {
+                                        shape = getBlockShape(world, nmsWorld, x, y, z, iBlockData, blockPosition);
+                                        if (cacheable && BLOCK_SHAPE_CACHE.getCaching(iBlockData) == BlockShapeCache.Caching.STATE) {
+                                            stateShapes.put(iBlockData, shape);
+                                        }
+                                    }
+                                    if (shape.length == 0) {
+                                        continue;
+                                    }
+                                    if (precise) {
+                                        for (int o = 6; o < shape.length; o += 6) {
+                                            consumer.accept(x, y, z, shape[o] + x, shape[o + 1] + y, shape[o + 2] + z, shape[o + 3] + x, shape[o + 4] + y, shape[o + 5] + z);
+                                        }
+                                    } else {
+                                        consumer.accept(x, y, z, shape[0] + x, shape[1] + y, shape[2] + z, shape[3] + x, shape[4] + y, shape[5] + z);
+                                    }
+                                }
+                            }
+                        }
                     }
-                } else {
-                    voxelShape = BlockMethodResolver.resolve(new ResolverQuery("a", IBlockData, IBlockAccess, BlockPosition)).invoke(nmsBlock, iBlockData, iBlockAccess, blockPosition);
                 }
-                axisAlignedBB = VoxelShapeMethodResolver.resolveSignature("AxisAlignedBB a()", "AxisAlignedBB getBoundingBox()").invoke(voxelShape);
-            } else if (MinecraftVersion.VERSION.newerThan(Minecraft.Version.v1_9_R1)) {
-                axisAlignedBB = BlockMethodResolver.resolve(new ResolverQuery("a", IBlockData, IBlockAccess, BlockPosition)).invoke(nmsBlock, iBlockData, iBlockAccess, blockPosition);
-            } else {
-                axisAlignedBB = BlockMethodResolver.resolve(new ResolverQuery("a", World, BlockPosition, IBlockData)).invoke(nmsBlock, iBlockAccess/*world*/, blockPosition, iBlockData);
             }
-            return BoundingBox.fromNMS(axisAlignedBB);
-        } catch (RuntimeException e) {
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        } finally {
+            BoundingBoxMetrics.stop(BoundingBoxMetrics.Metric.BLOCK_REGION, start);
+        }
+    }
+
+    /**
+     * Adds the absolute bounding boxes of all blocks in the region to a batch
+     *
+     * @return the batch
+     * @see #getBoundingBoxes(World, BoundingBox, BlockBoundingBoxConsumer)
+     */
+    public static BoundingBoxBatch getBoundingBoxes(World world, BoundingBox region, BoundingBoxBatch dest) {
+        getBoundingBoxes(world, region, (x, y, z, minX, minY, minZ, maxX, maxY, maxZ) -> dest.add(minX, minY, minZ, maxX, maxY, maxZ));
+        return dest;
+    }
+
+    static void checkEntitySupported() {
+        if (ENTITY_BOX_STRATEGY == null) {
+            throw new IllegalStateException("Entity bounding boxes are not supported on " + MinecraftVersion.VERSION, ENTITY_BOX_ERROR);
+        }
+    }
+
+    static void checkBlockShapeSupported() {
+        if (BLOCK_SHAPE_STRATEGY == null) {
+            throw new IllegalStateException("Block bounding boxes are not supported on " + MinecraftVersion.VERSION, BLOCK_SHAPE_ERROR);
+        }
+    }
+
+    static boolean isZero(int value) {
+        return value == 0;
+    }
+
+    static int getMinHeight(World world) {
+        if (WORLD_MIN_HEIGHT == null) {
+            return 0;
+        }
+        try {
+            return (int) WORLD_MIN_HEIGHT.invokeExact(world);
+        } catch (RuntimeException | Error e) {
             throw e;
-        } catch (Exception e) {
+        } catch (Throwable e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * @return the cache used by {@link #getBoundingBox(Block)}
+     */
+    public static BlockShapeCache getBlockShapeCache() {
+        return BLOCK_SHAPE_CACHE;
+    }
+
     public static BoundingBox getAbsoluteBoundingBox(Block block) {
-        return getBoundingBox(block).translate(new Vector3DDouble(block.getLocation().toVector()));
+        return getBoundingBox(block).translateSelf(block.getX(), block.getY(), block.getZ());
     }
 
 }
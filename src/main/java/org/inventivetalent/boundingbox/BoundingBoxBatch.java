@@ -0,0 +1,215 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Collection of bounding boxes stored as six primitive columns, for testing one box or point against many boxes at once
+ * <p>
+ * The bulk tests use the same (exclusive) semantics as {@link BoundingBox#intersects(BoundingBox)} and {@link BoundingBox#contains(double, double, double)}
+ */
+public class BoundingBoxBatch {
+
+    double[] minX;
+    double[] minY;
+    double[] minZ;
+    double[] maxX;
+    double[] maxY;
+    double[] maxZ;
+    int size;
+
+    public BoundingBoxBatch() {
+        this(16);
+    }
+
+    public BoundingBoxBatch(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.minX = new double[capacity];
+        this.minY = new double[capacity];
+        this.minZ = new double[capacity];
+        this.maxX = new double[capacity];
+        this.maxY = new double[capacity];
+        this.maxZ = new double[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Adds a box
+     *
+     * @return index of the added box
+     */
+    public int add(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        if (size == this.minX.length) {
+            grow(size * 2);
+        }
+        int i = size++;
+        this.minX[i] = minX;
+        this.minY[i] = minY;
+        this.minZ[i] = minZ;
+        this.maxX[i] = maxX;
+        this.maxY[i] = maxY;
+        this.maxZ[i] = maxZ;
+        return i;
+    }
+
+    /**
+     * Adds a box
+     *
+     * @return index of the added box
+     */
+    public int add(BoundingBox boundingBox) {
+        return add(boundingBox.minX, boundingBox.minY, boundingBox.minZ, boundingBox.maxX, boundingBox.maxY, boundingBox.maxZ);
+    }
+
+    /**
+     * Adds boxes from an array with 6 values per box (minX, minY, minZ, maxX, maxY, maxZ)
+     */
+    public void addAll(double[] boxes, int offset, int count) {
+        if (size + count > this.minX.length) {
+            grow(Math.max(size + count, size * 2));
+        }
+        for (int i = 0; i < count; i++) {
+            int o = offset + i * 6;
+            add(boxes[o], boxes[o + 1], boxes[o + 2], boxes[o + 3], boxes[o + 4], boxes[o + 5]);
+        }
+    }
+
+    /**
+     * Copies the box at the index into an existing BoundingBox
+     *
+     * @return the destination BoundingBox
+     */
+    public BoundingBox get(int index, BoundingBox dest) {
+        checkIndex(index);
+        dest.minX = minX[index];
+        dest.minY = minY[index];
+        dest.minZ = minZ[index];
+        dest.maxX = maxX[index];
+        dest.maxY = maxY[index];
+        dest.maxZ = maxZ[index];
+        return dest;
+    }
+
+    public BoundingBox get(int index) {
+        return get(index, new BoundingBox());
+    }
+
+    /**
+     * Replaces the box at the index
+     */
+    public void set(int index, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        checkIndex(index);
+        this.minX[index] = minX;
+        this.minY[index] = minY;
+        this.minZ[index] = minZ;
+        this.maxX[index] = maxX;
+        this.maxY[index] = maxY;
+        this.maxZ[index] = maxZ;
+    }
+
+    /**
+     * Sets the bits of all boxes intersecting the query box
+     *
+     * @param query box to test
+     * @param out   BitSet to set the indices of intersecting boxes in (cleared first)
+     * @return the BitSet
+     */
+    public BitSet intersectsAll(BoundingBox query, BitSet out) {
+        out.clear();
+        final double qMinX = query.minX, qMinY = query.minY, qMinZ = query.minZ;
+        final double qMaxX = query.maxX, qMaxY = query.maxY, qMaxZ = query.maxZ;
+        final double[] minX = this.minX, minY = this.minY, minZ = this.minZ;
+        final double[] maxX = this.maxX, maxY = this.maxY, maxZ = this.maxZ;
+        for (int i = 0; i < size; i++) {
+            if (minX[i] < qMaxX & maxX[i] > qMinX & minY[i] < qMaxY & maxY[i] > qMinY & minZ[i] < qMaxZ & maxZ[i] > qMinZ) {
+                out.set(i);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @param query box to test
+     * @return the number of boxes intersecting the query box
+     */
+    public int countIntersections(BoundingBox query) {
+        final double qMinX = query.minX, qMinY = query.minY, qMinZ = query.minZ;
+        final double qMaxX = query.maxX, qMaxY = query.maxY, qMaxZ = query.maxZ;
+        final double[] minX = this.minX, minY = this.minY, minZ = this.minZ;
+        final double[] maxX = this.maxX, maxY = this.maxY, maxZ = this.maxZ;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            count += (minX[i] < qMaxX & maxX[i] > qMinX & minY[i] < qMaxY & maxY[i] > qMinY & minZ[i] < qMaxZ & maxZ[i] > qMinZ) ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Sets the bits of all boxes containing the point
+     *
+     * @param out BitSet to set the indices of containing boxes in (cleared first)
+     * @return the BitSet
+     */
+    public BitSet containsPointAll(double x, double y, double z, BitSet out) {
+        out.clear();
+        final double[] minX = this.minX, minY = this.minY, minZ = this.minZ;
+        final double[] maxX = this.maxX, maxY = this.maxY, maxZ = this.maxZ;
+        for (int i = 0; i < size; i++) {
+            if (x > minX[i] & x < maxX[i] & y > minY[i] & y < maxY[i] & z > minZ[i] & z < maxZ[i]) {
+                out.set(i);
+            }
+        }
+        return out;
+    }
+
+    void grow(int capacity) {
+        minX = Arrays.copyOf(minX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        minZ = Arrays.copyOf(minZ, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        maxZ = Arrays.copyOf(maxZ, capacity);
+    }
+
+    void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact binary encoding for large sets of bounding boxes
+ * <p>
+ * Files consist of a 16 byte header (magic, version, {@link Format}, box count) followed by fixed size records of 6 values (minX, minY, minZ, maxX, maxY, maxZ), all little-endian.
+ * Files can be loaded completely with {@link #readAll(Path)} or accessed randomly without decoding through {@link MappedBoundingBoxFile}.
+ */
+public class BoundingBoxCodec {
+
+    static final int MAGIC = 0x58424242;// "BBBX"
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    public enum Format {
+        /**
+         * Exact, 48 bytes per box
+         */
+        DOUBLE(48),
+        /**
+         * Lossy single precision, 24 bytes per box
+         */
+        FLOAT(24),
+        /**
+         * Block-aligned boxes with integer coordinates only, 24 bytes per box
+         */
+        INT(24);
+
+        final int recordSize;
+
+        Format(int recordSize) {
+            this.recordSize = recordSize;
+        }
+
+        public int getRecordSize() {
+            return recordSize;
+        }
+    }
+
+    /**
+     * Writes a single record. The buffer is switched to little-endian, like the file format.
+     *
+     * @throws IllegalArgumentException if the format is {@link Format#INT} and the box isn't block-aligned
+     */
+    public static void write(BoundingBox boundingBox, Format format, ByteBuffer buffer) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        write(boundingBox.minX, boundingBox.minY, boundingBox.minZ, boundingBox.maxX, boundingBox.maxY, boundingBox.maxZ, format, buffer);
+    }
+
+    static void write(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, Format format, ByteBuffer buffer) {
+        switch (format) {
+            case DOUBLE:
+                buffer.putDouble(minX).putDouble(minY).putDouble(minZ).putDouble(maxX).putDouble(maxY).putDouble(maxZ);
+                break;
+            case FLOAT:
+                buffer.putFloat((float) minX).putFloat((float) minY).putFloat((float) minZ).putFloat((float) maxX).putFloat((float) maxY).putFloat((float) maxZ);
+                break;
+            case INT:
+                buffer.putInt(toInt(minX)).putInt(toInt(minY)).putInt(toInt(minZ)).putInt(toInt(maxX)).putInt(toInt(maxY)).putInt(toInt(maxZ));
+                break;
+        }
+    }
+
+    /**
+     * Reads a single record into an existing BoundingBox. The buffer is switched to little-endian, like the file format.
+     *
+     * @return the destination BoundingBox
+     */
+    public static BoundingBox read(ByteBuffer buffer, Format format, BoundingBox dest) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        switch (format) {
+            case DOUBLE:
+                dest.minX = buffer.getDouble();
+                dest.minY = buffer.getDouble();
+                dest.minZ = buffer.getDouble();
+                dest.maxX = buffer.getDouble();
+                dest.maxY = buffer.getDouble();
+                dest.maxZ = buffer.getDouble();
+                break;
+            case FLOAT:
+                dest.minX = buffer.getFloat();
+                dest.minY = buffer.getFloat();
+                dest.minZ = buffer.getFloat();
+                dest.maxX = buffer.getFloat();
+                dest.maxY = buffer.getFloat();
+                dest.maxZ = buffer.getFloat();
+                break;
+            case INT:
+                dest.minX = buffer.getInt();
+                dest.minY = buffer.getInt();
+                dest.minZ = buffer.getInt();
+                dest.maxX = buffer.getInt();
+                dest.maxY = buffer.getInt();
+                dest.maxZ = buffer.getInt();
+                break;
+        }
+        return dest;
+    }
+
+    /**
+     * Writes all boxes of the batch to a file, replacing it if it exists
+     */
+    public static void writeAll(BoundingBoxBatch batch, Format format, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeAll(batch, format, channel);
+        }
+    }
+
+    /**
+     * Writes the header and all boxes of the batch to the channel
+     *
+     * @throws IllegalArgumentException if the format is {@link Format#INT} and any box isn't block-aligned. Nothing is written in that case.
+     */
+    public static void writeAll(BoundingBoxBatch batch, Format format, FileChannel channel) throws IOException {
+        if (format == Format.INT) {
+            // Check everything up front, so a failure doesn't leave a header which doesn't match the records
+            for (int i = 0; i < batch.size(); i++) {
+                toInt(batch.minX[i]);
+                toInt(batch.minY[i]);
+                toInt(batch.minZ[i]);
+                toInt(batch.maxX[i]);
+                toInt(batch.maxY[i]);
+                toInt(batch.maxZ[i]);
+            }
+        }
+        int perBuffer = Math.max(1, Math.min(batch.size(), 65536 / format.recordSize));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(HEADER_SIZE, perBuffer * format.recordSize)).order(ByteOrder.LITTLE_ENDIAN);
+
+        writeHeader(buffer, format, batch.size());
+        buffer.flip();
+        writeFully(channel, buffer);
+
+        for (int i = 0; i < batch.size(); ) {
+            buffer.clear();
+            int end = Math.min(batch.size(), i + perBuffer);
+            for (; i < end; i++) {
+                write(batch.minX[i], batch.minY[i], batch.minZ[i], batch.maxX[i], batch.maxY[i], batch.maxZ[i], format, buffer);
+            }
+            buffer.flip();
+            writeFully(channel, buffer);
+        }
+    }
+
+    /**
+     * Reads all boxes of a file
+     */
+    public static BoundingBoxBatch readAll(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readAll(channel);
+        }
+    }
+
+    /**
+     * Reads the header and all boxes from the channel
+     */
+    public static BoundingBoxBatch readAll(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header);
+        header.flip();
+        Format format = readFormat(header);
+        int count = header.getInt();
+        if (count < 0 || (long) count * format.recordSize > channel.size() - channel.position()) {
+            throw new IOException("Truncated bounding box file, expected " + count + " boxes");
+        }
+
+        BoundingBoxBatch batch = new BoundingBoxBatch(count);
+        int perBuffer = Math.max(1, Math.min(count, 65536 / format.recordSize));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(perBuffer * format.recordSize).order(ByteOrder.LITTLE_ENDIAN);
+        BoundingBox box = new BoundingBox();
+        for (int i = 0; i < count; ) {
+            int end = Math.min(count, i + perBuffer);
+            buffer.clear().limit((end - i) * format.recordSize);
+            readFully(channel, buffer);
+            buffer.flip();
+            for (; i < end; i++) {
+                read(buffer, format, box);
+                batch.add(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+            }
+        }
+        return batch;
+    }
+
+    static void writeHeader(ByteBuffer buffer, Format format, int count) {
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte) format.ordinal());
+        buffer.putShort((short) 0);
+        buffer.putInt(count);
+        buffer.putInt(0);
+    }
+
+    /**
+     * Reads the header up to (and including) the format, leaving the buffer positioned at the count
+     */
+    static Format readFormat(ByteBuffer header) throws IOException {
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+            throw new IOException("Not a bounding box file");
+        }
+        byte version = header.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported bounding box file version " + version);
+        }
+        int format = header.get();
+        header.getShort();
+        if (format < 0 || format >= Format.values().length) {
+            throw new IOException("Unknown bounding box format " + format);
+        }
+        return Format.values()[format];
+    }
+
+    static int toInt(double value) {
+        int i = (int) value;
+        if (i != value) {
+            throw new IllegalArgumentException("Value " + value + " is not block-aligned");
+        }
+        return i;
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of file", new BufferUnderflowException());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Optional call count &amp; latency metrics for the {@link BoundingBoxAPI} methods.
+ * <p>
+ * Disabled by default, in which case every instrumented call only costs a single volatile read.
+ * When enabled, the metrics can be read through {@link #snapshot()} and are also emitted as a periodic JFR event ({@code org.inventivetalent.boundingbox.Metrics}) while a flight recording is running.
+ */
+public class BoundingBoxMetrics {
+
+    public enum Metric {
+        /**
+         * Block shape lookups, e.g. {@link BoundingBoxAPI#getBoundingBox(org.bukkit.block.Block)}
+         */
+        BLOCK_BOUNDING_BOX,
+        /**
+         * Region scans, {@link BoundingBoxAPI#getBoundingBoxes(org.bukkit.World, BoundingBox, boolean, BlockBoundingBoxConsumer)}
+         */
+        BLOCK_REGION,
+        /**
+         * Entity bounding box reads, e.g. {@link BoundingBoxAPI#getAbsoluteBoundingBox(org.bukkit.entity.Entity)}
+         */
+        ENTITY_BOUNDING_BOX,
+        /**
+         * Entity bounding box reads done by {@link EntityBoundingBoxTracker#update(Iterable)}, one sample per entity
+         */
+        ENTITY_TRACKER_READ,
+        /**
+         * {@link BoundingBoxAPI#setBoundingBox(org.bukkit.entity.Entity, BoundingBox)}
+         */
+        ENTITY_SET_BOUNDING_BOX,
+        /**
+         * {@link BoundingBoxAPI#setSize(org.bukkit.entity.Entity, float, float)}
+         */
+        ENTITY_SET_SIZE,
+        /**
+         * Whole batches of {@link BoundingBoxAPI#setBoundingBoxes(org.bukkit.entity.Entity[], BoundingBox[])} and its overloads, one sample per batch
+         */
+        ENTITY_SET_BOUNDING_BOX_BATCH,
+        /**
+         * Whole batches of {@link BoundingBoxAPI#setSizes(org.bukkit.entity.Entity[], float[], float[])} and {@link BoundingBoxAPI#setSize(Iterable, float, float)}, one sample per batch
+         */
+        ENTITY_SET_SIZE_BATCH
+    }
+
+    static volatile boolean enabled;
+    static boolean jfrRegistered;
+
+    static final LatencyHistogram[] HISTOGRAMS = new LatencyHistogram[Metric.values().length];
+
+    static {
+        for (int i = 0; i < HISTOGRAMS.length; i++) {
+            HISTOGRAMS[i] = new LatencyHistogram();
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static synchronized void setEnabled(boolean enabled) {
+        BoundingBoxMetrics.enabled = enabled;
+        if (enabled && !jfrRegistered) {
+            jfrRegistered = true;
+            try {
+                BoundingBoxMetricsEvent.register();
+            } catch (Throwable ignored) {
+                // JFR isn't available on this JVM
+            }
+        }
+    }
+
+    /**
+     * @return the current metrics of all methods
+     */
+    public static Map<Metric, MetricSnapshot> snapshot() {
+        Map<Metric, MetricSnapshot> map = new EnumMap<>(Metric.class);
+        for (Metric metric : Metric.values()) {
+            map.put(metric, snapshot(metric));
+        }
+        return map;
+    }
+
+    public static MetricSnapshot snapshot(Metric metric) {
+        return HISTOGRAMS[metric.ordinal()].snapshot(metric);
+    }
+
+    /**
+     * @return hit rate of the block shape cache
+     * @see BlockShapeCache#getHitRate()
+     */
+    public static double getBlockShapeCacheHitRate() {
+        return BoundingBoxAPI.getBlockShapeCache().getHitRate();
+    }
+
+    public static void reset() {
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+        BoundingBoxAPI.getBlockShapeCache().resetStats();
+    }
+
+    /**
+     * @return start time to pass to {@link #stop(Metric, long)}, or 0 if metrics are disabled
+     */
+    static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    static void stop(Metric metric, long start) {
+        if (start != 0) {
+            HISTOGRAMS[metric.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Periodic JFR event with the {@link BoundingBoxMetrics} of one method
+ */
+@Name("org.inventivetalent.boundingbox.Metrics")
+@Label("BoundingBoxAPI Metrics")
+@Category("BoundingBoxAPI")
+@Period("1 s")
+@StackTrace(false)
+public class BoundingBoxMetricsEvent extends Event {
+
+    @Label("Method")
+    String metric;
+
+    @Label("Calls")
+    long count;
+
+    @Label("Mean")
+    @Timespan
+    long meanNanos;
+
+    @Label("P99")
+    @Timespan
+    long p99Nanos;
+
+    @Label("Max")
+    @Timespan
+    long maxNanos;
+
+    @Label("Block Shape Cache Hit Rate")
+    @Percentage
+    double cacheHitRate;
+
+    static void register() {
+        FlightRecorder.addPeriodicEvent(BoundingBoxMetricsEvent.class, () -> {
+            if (!BoundingBoxMetrics.isEnabled()) {
+                return;
+            }
+            double cacheHitRate = BoundingBoxMetrics.getBlockShapeCacheHitRate();
+            for (MetricSnapshot snapshot : BoundingBoxMetrics.snapshot().values()) {
+                BoundingBoxMetricsEvent event = new BoundingBoxMetricsEvent();
+                event.metric = snapshot.getMetric().name();
+                event.count = snapshot.getCount();
+                event.meanNanos = (long) snapshot.getMeanNanos();
+                event.p99Nanos = snapshot.getP99Nanos();
+                event.maxNanos = snapshot.getMaxNanos();
+                event.cacheHitRate = cacheHitRate;
+                event.commit();
+            }
+        });
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import java.util.ArrayDeque;
+
+/**
+ * Thread-local pool of reusable {@link BoundingBox} instances, for use with the in-place ({@code *Self}) operations in hot loops
+ * <p>
+ * Boxes taken from the pool have undefined values and should be given back with {@link #release(BoundingBox)} once they're no longer used.
+ * A box must be given back only once, and not be used after that until it's taken again.
+ */
+public class BoundingBoxPool {
+
+    static final int MAX_SIZE = 256;
+
+    static final ThreadLocal<BoundingBoxPool> POOL = ThreadLocal.withInitial(BoundingBoxPool::new);
+
+    private final ArrayDeque<BoundingBox> free = new ArrayDeque<>();
+
+    BoundingBoxPool() {
+    }
+
+    /**
+     * @return the pool of the current thread
+     */
+    public static BoundingBoxPool get() {
+        return POOL.get();
+    }
+
+    /**
+     * Takes a box from the current thread's pool
+     */
+    public static BoundingBox acquire() {
+        return POOL.get().take();
+    }
+
+    /**
+     * Takes a box from the current thread's pool and sets its values
+     */
+    public static BoundingBox acquire(double x1, double y1, double z1, double x2, double y2, double z2) {
+        return POOL.get().take().set(x1, y1, z1, x2, y2, z2);
+    }
+
+    /**
+     * Gives a box back to the current thread's pool
+     *
+     * @throws IllegalStateException if the box was already given back
+     */
+    public static void release(BoundingBox boundingBox) {
+        POOL.get().give(boundingBox);
+    }
+
+    public BoundingBox take() {
+        BoundingBox boundingBox = free.pollLast();
+        if (boundingBox == null) {
+            return new BoundingBox();
+        }
+        boundingBox.pooled = false;
+        return boundingBox;
+    }
+
+    /**
+     * @throws IllegalStateException if the box was already given back, since it would otherwise be handed out twice
+     */
+    public void give(BoundingBox boundingBox) {
+        if (boundingBox == null) {
+            return;
+        }
+        if (boundingBox.pooled) {
+            throw new IllegalStateException("BoundingBox was already released");
+        }
+        if (free.size() >= MAX_SIZE) {
+            return;
+        }
+        boundingBox.pooled = true;
+        free.addLast(boundingBox);
+    }
+
+    public int size() {
+        return free.size();
+    }
+
+}
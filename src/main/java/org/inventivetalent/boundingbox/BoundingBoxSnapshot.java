@@ -0,0 +1,241 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable snapshot of the entity and block bounding boxes in a set of chunks
+ * <p>
+ * Snapshots have to be {@link #capture(World, Collection, int, int, boolean) captured} on the main thread, but can then be queried from any number of threads at once, e.g. from a fork-join pool.
+ * All boxes are absolute and stored as 6 values per box (minX, minY, minZ, maxX, maxY, maxZ).
+ */
+public final class BoundingBoxSnapshot {
+
+    private final int[] entityIds;
+    private final double[] entityBoxes;
+
+    private final int[] blockPositions;// x, y, z per box
+    private final double[] blockBoxes;
+
+    private BoundingBoxSnapshot(int[] entityIds, double[] entityBoxes, int[] blockPositions, double[] blockBoxes) {
+        this.entityIds = entityIds;
+        this.entityBoxes = entityBoxes;
+        this.blockPositions = blockPositions;
+        this.blockBoxes = blockBoxes;
+    }
+
+    /**
+     * Captures the bounding boxes of all entities and blocks in the chunks
+     *
+     * @see #capture(World, Collection, int, int, boolean)
+     */
+    public static BoundingBoxSnapshot capture(World world, Collection<Chunk> chunks) {
+        return capture(world, chunks, Integer.MIN_VALUE, Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * Captures the bounding boxes of all entities and blocks in the chunks. Must be called on the main thread.
+     *
+     * @param world   World of the chunks
+     * @param chunks  chunks to capture
+     * @param minY    lowest y-coordinate of blocks to capture
+     * @param maxY    highest y-coordinate of blocks to capture
+     * @param precise whether to capture every box making up each block's shape, instead of a single box per block
+     * @return the snapshot
+     */
+    public static BoundingBoxSnapshot capture(World world, Collection<Chunk> chunks, int minY, int maxY, boolean precise) {
+        if (!Bukkit.isPrimaryThread()) {
+            throw new IllegalStateException("Snapshots must be captured on the main thread");
+        }
+
+        int entityCount = 0;
+        int[] entityIds = new int[16];
+        double[] entityBoxes = new double[16 * 6];
+        for (Chunk chunk : chunks) {
+            for (Entity entity : chunk.getEntities()) {
+                if (entityCount == entityIds.length) {
+                    entityIds = Arrays.copyOf(entityIds, entityCount * 2);
+                    entityBoxes = Arrays.copyOf(entityBoxes, entityCount * 2 * 6);
+                }
+                entityIds[entityCount] = entity.getEntityId();
+                BoundingBoxAPI.getAbsoluteBoundingBox(entity, entityBoxes, entityCount * 6);
+                entityCount++;
+            }
+        }
+
+        BlockCollector blocks = new BlockCollector();
+        BoundingBox region = new BoundingBox();
+        for (Chunk chunk : chunks) {
+            region.minX = chunk.getX() << 4;
+            region.minY = minY;
+            region.minZ = chunk.getZ() << 4;
+            region.maxX = region.minX + 16;
+            region.maxY = maxY + 1.0D;
+            region.maxZ = region.minZ + 16;
+            BoundingBoxAPI.getBoundingBoxes(world, region, precise, blocks);
+        }
+
+        return new BoundingBoxSnapshot(Arrays.copyOf(entityIds, entityCount), Arrays.copyOf(entityBoxes, entityCount * 6), Arrays.copyOf(blocks.positions, blocks.count * 3), Arrays.copyOf(blocks.boxes, blocks.count * 6));
+    }
+
+    public int getEntityCount() {
+        return entityIds.length;
+    }
+
+    public int getEntityId(int index) {
+        return entityIds[index];
+    }
+
+    public BoundingBox getEntityBox(int index, BoundingBox dest) {
+        return copy(entityBoxes, index, dest);
+    }
+
+    public int getBlockCount() {
+        return blockPositions.length / 3;
+    }
+
+    public int getBlockX(int index) {
+        return blockPositions[index * 3];
+    }
+
+    public int getBlockY(int index) {
+        return blockPositions[index * 3 + 1];
+    }
+
+    public int getBlockZ(int index) {
+        return blockPositions[index * 3 + 2];
+    }
+
+    public BoundingBox getBlockBox(int index, BoundingBox dest) {
+        return copy(blockBoxes, index, dest);
+    }
+
+    /**
+     * @param out BitSet to set the indices of entities intersecting the region in (cleared first)
+     * @return the BitSet
+     */
+    public BitSet getIntersectingEntities(BoundingBox region, BitSet out) {
+        return intersecting(entityBoxes, region, out);
+    }
+
+    /**
+     * @param out BitSet to set the indices of block boxes intersecting the region in (cleared first)
+     * @return the BitSet
+     */
+    public BitSet getIntersectingBlocks(BoundingBox region, BitSet out) {
+        return intersecting(blockBoxes, region, out);
+    }
+
+    public int countIntersectingEntities(BoundingBox region) {
+        return count(entityBoxes, region.minX, region.minY, region.minZ, region.maxX, region.maxY, region.maxZ);
+    }
+
+    public int countIntersectingBlocks(BoundingBox region) {
+        return count(blockBoxes, region.minX, region.minY, region.minZ, region.maxX, region.maxY, region.maxZ);
+    }
+
+    /**
+     * Counts the block boxes intersecting each entity, in parallel on the common fork-join pool
+     *
+     * @return number of intersecting block boxes, by entity index
+     */
+    public int[] countBlockIntersectionsPerEntity() {
+        int[] counts = new int[entityIds.length];
+        IntStream.range(0, entityIds.length).parallel().forEach(i -> {
+            int o = i * 6;
+            counts[i] = count(blockBoxes, entityBoxes[o], entityBoxes[o + 1], entityBoxes[o + 2], entityBoxes[o + 3], entityBoxes[o + 4], entityBoxes[o + 5]);
+        });
+        return counts;
+    }
+
+    static BoundingBox copy(double[] boxes, int index, BoundingBox dest) {
+        int o = index * 6;
+        dest.minX = boxes[o];
+        dest.minY = boxes[o + 1];
+        dest.minZ = boxes[o + 2];
+        dest.maxX = boxes[o + 3];
+        dest.maxY = boxes[o + 4];
+        dest.maxZ = boxes[o + 5];
+        return dest;
+    }
+
+    static BitSet intersecting(double[] boxes, BoundingBox region, BitSet out) {
+        out.clear();
+        for (int i = 0, o = 0; o < boxes.length; i++, o += 6) {
+            if (boxes[o] < region.maxX && boxes[o + 3] > region.minX && boxes[o + 1] < region.maxY && boxes[o + 4] > region.minY && boxes[o + 2] < region.maxZ && boxes[o + 5] > region.minZ) {
+                out.set(i);
+            }
+        }
+        return out;
+    }
+
+    static int count(double[] boxes, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        int count = 0;
+        for (int o = 0; o < boxes.length; o += 6) {
+            count += (boxes[o] < maxX & boxes[o + 3] > minX & boxes[o + 1] < maxY & boxes[o + 4] > minY & boxes[o + 2] < maxZ & boxes[o + 5] > minZ) ? 1 : 0;
+        }
+        return count;
+    }
+
+    static class BlockCollector implements BlockBoundingBoxConsumer {
+        int count;
+        int[] positions = new int[64 * 3];
+        double[] boxes = new double[64 * 6];
+
+        @Override
+        public void accept(int x, int y, int z, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+            if (count * 3 == positions.length) {
+                positions = Arrays.copyOf(positions, positions.length * 2);
+                boxes = Arrays.copyOf(boxes, boxes.length * 2);
+            }
+            int p = count * 3;
+            positions[p] = x;
+            positions[p + 1] = y;
+            positions[p + 2] = z;
+            int o = count * 6;
+            boxes[o] = minX;
+            boxes[o + 1] = minY;
+            boxes[o + 2] = minZ;
+            boxes[o + 3] = maxX;
+            boxes[o + 4] = maxY;
+            boxes[o + 5] = maxZ;
+            count++;
+        }
+    }
+
+}
@@ -0,0 +1,643 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Dynamic AABB tree for broad-phase queries over many bounding boxes
+ * <p>
+ * Each inserted box is stored as a "fat" box, expanded by a margin, so small movements don't require the tree to be restructured.
+ * Queries are tested against the fat boxes and may therefore return some objects which don't actually overlap; use {@link BoundingBox#intersects(BoundingBox)} on the results to narrow them down.
+ * <p>
+ * Not thread-safe. Queries may be nested inside query callbacks, but the tree must not be modified from inside them.
+ *
+ * @param <T> type of the objects associated with the boxes
+ */
+public class BoundingBoxTree<T> {
+
+    static final int NULL = -1;
+
+    final double margin;
+
+    double[] bounds;// 6 values per node
+    int[] parent;// also used as the next pointer of free nodes
+    int[] child1;
+    int[] child2;
+    int[] height;// -1 for free nodes, 0 for leaves
+    Object[] data;
+
+    int root = NULL;
+    int freeList = NULL;
+    int capacity;
+    int nodeCount;
+    int leafCount;
+
+    // Traversal stack, taken by the running traversal so nested queries from callbacks get their own
+    int[] stack = new int[64];
+
+    public BoundingBoxTree() {
+        this(0.1);
+    }
+
+    /**
+     * @param margin distance each box is expanded by when it's inserted
+     */
+    public BoundingBoxTree(double margin) {
+        this.margin = margin;
+        this.capacity = 0;
+        this.bounds = new double[0];
+        this.parent = new int[0];
+        this.child1 = new int[0];
+        this.child2 = new int[0];
+        this.height = new int[0];
+        this.data = new Object[0];
+        grow(16);
+    }
+
+    /**
+     * Inserts a box
+     *
+     * @param boundingBox box to insert
+     * @param object      object associated with the box
+     * @return id of the box in the tree
+     */
+    public int insert(BoundingBox boundingBox, T object) {
+        int id = allocateNode();
+        setFat(id, boundingBox, 0, 0, 0);
+        data[id] = object;
+        height[id] = 0;
+        insertLeaf(id);
+        leafCount++;
+        return id;
+    }
+
+    /**
+     * Removes a box
+     *
+     * @param id id returned by {@link #insert(BoundingBox, Object)}
+     */
+    public void remove(int id) {
+        checkLeaf(id);
+        removeLeaf(id);
+        freeNode(id);
+        leafCount--;
+    }
+
+    /**
+     * Updates the position of a box. The tree is only changed if the box moved out of its fat box.
+     *
+     * @param id          id returned by {@link #insert(BoundingBox, Object)}
+     * @param boundingBox the new box
+     * @return <code>true</code> if the tree was changed
+     */
+    public boolean update(int id, BoundingBox boundingBox) {
+        return update(id, boundingBox, 0, 0, 0);
+    }
+
+    /**
+     * Updates the position of a moving box. If the box moved out of its fat box, the new fat box is also extended in the direction of the displacement.
+     *
+     * @param id          id returned by {@link #insert(BoundingBox, Object)}
+     * @param boundingBox the new box
+     * @param dx          expected displacement on the x-axis
+     * @param dy          expected displacement on the y-axis
+     * @param dz          expected displacement on the z-axis
+     * @return <code>true</code> if the tree was changed
+     */
+    public boolean update(int id, BoundingBox boundingBox, double dx, double dy, double dz) {
+        checkLeaf(id);
+        int o = id * 6;
+        if (bounds[o] <= boundingBox.minX && bounds[o + 1] <= boundingBox.minY && bounds[o + 2] <= boundingBox.minZ//
+                && bounds[o + 3] >= boundingBox.maxX && bounds[o + 4] >= boundingBox.maxY && bounds[o + 5] >= boundingBox.maxZ) {
+            return false;
+        }
+        removeLeaf(id);
+        setFat(id, boundingBox, dx, dy, dz);
+        insertLeaf(id);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getObject(int id) {
+        checkLeaf(id);
+        return (T) data[id];
+    }
+
+    /**
+     * Copies the fat box of an entry into an existing BoundingBox
+     *
+     * @return the destination BoundingBox
+     */
+    public BoundingBox getFatBox(int id, BoundingBox dest) {
+        checkLeaf(id);
+        int o = id * 6;
+        dest.minX = bounds[o];
+        dest.minY = bounds[o + 1];
+        dest.minZ = bounds[o + 2];
+        dest.maxX = bounds[o + 3];
+        dest.maxY = bounds[o + 4];
+        dest.maxZ = bounds[o + 5];
+        return dest;
+    }
+
+    /**
+     * @return the number of boxes in the tree
+     */
+    public int size() {
+        return leafCount;
+    }
+
+    /**
+     * @return the height of the tree, 0 if it's empty or only contains a single box
+     */
+    public int getHeight() {
+        return root == NULL ? 0 : height[root];
+    }
+
+    public void clear() {
+        root = NULL;
+        freeList = NULL;
+        nodeCount = 0;
+        leafCount = 0;
+        Arrays.fill(data, null);
+        for (int i = capacity - 1; i >= 0; i--) {
+            parent[i] = freeList;
+            height[i] = -1;
+            freeList = i;
+        }
+    }
+
+    /**
+     * Finds all objects whose fat box overlaps the region
+     */
+    public void query(BoundingBox region, Consumer<T> consumer) {
+        query(region.minX, region.minY, region.minZ, region.maxX, region.maxY, region.maxZ, consumer);
+    }
+
+    /**
+     * Finds all objects whose fat box overlaps the region
+     */
+    @SuppressWarnings("unchecked")
+    public void query(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, Consumer<T> consumer) {
+        if (root == NULL) {
+            return;
+        }
+        int[] stack = takeStack();
+        try {
+            int top = 0;
+            stack[top++] = root;
+            while (top > 0) {
+                int node = stack[--top];
+                if (!overlaps(node, minX, minY, minZ, maxX, maxY, maxZ)) {
+                    continue;
+                }
+                if (isLeaf(node)) {
+                    consumer.accept((T) data[node]);
+                } else {
+                    if (top + 2 > stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[top++] = child1[node];
+                    stack[top++] = child2[node];
+                }
+            }
+        } finally {
+            this.stack = stack;
+        }
+    }
+
+    /**
+     * Finds all objects whose fat box contains the point
+     */
+    public void queryPoint(double x, double y, double z, Consumer<T> consumer) {
+        query(x, y, z, x, y, z, consumer);
+    }
+
+    /**
+     * Finds all objects whose fat box is hit by the segment from <code>origin</code> to <code>origin + direction * maxDistance</code>
+     *
+     * @param maxDistance maximum distance along the ray, in multiples of the direction's length
+     */
+    @SuppressWarnings("unchecked")
+    public void rayCast(double originX, double originY, double originZ, double directionX, double directionY, double directionZ, double maxDistance, Consumer<T> consumer) {
+        if (root == NULL) {
+            return;
+        }
+        int[] stack = takeStack();
+        try {
+            int top = 0;
+            stack[top++] = root;
+            while (top > 0) {
+                int node = stack[--top];
+                if (!rayHits(node, originX, originY, originZ, directionX, directionY, directionZ, maxDistance)) {
+                    continue;
+                }
+                if (isLeaf(node)) {
+                    consumer.accept((T) data[node]);
+                } else {
+                    if (top + 2 > stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[top++] = child1[node];
+                    stack[top++] = child2[node];
+                }
+            }
+        } finally {
+            this.stack = stack;
+        }
+    }
+
+    /**
+     * Finds all pairs of objects whose fat boxes overlap. Each pair is only reported once.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachOverlappingPair(BiConsumer<T, T> consumer) {
+        if (root == NULL) {
+            return;
+        }
+        int[] stack = takeStack();
+        try {
+            for (int leaf = 0; leaf < capacity; leaf++) {
+                if (height[leaf] != 0) {
+                    continue;
+                }
+                int o = leaf * 6;
+                double minX = bounds[o], minY = bounds[o + 1], minZ = bounds[o + 2];
+                double maxX = bounds[o + 3], maxY = bounds[o + 4], maxZ = bounds[o + 5];
+
+                int top = 0;
+                stack[top++] = root;
+                while (top > 0) {
+                    int node = stack[--top];
+                    if (!overlaps(node, minX, minY, minZ, maxX, maxY, maxZ)) {
+                        continue;
+                    }
+                    if (isLeaf(node)) {
+                        if (node > leaf) {
+                            consumer.accept((T) data[leaf], (T) data[node]);
+                        }
+                    } else {
+                        if (top + 2 > stack.length) {
+                            stack = Arrays.copyOf(stack, stack.length * 2);
+                        }
+                        stack[top++] = child1[node];
+                        stack[top++] = child2[node];
+                    }
+                }
+            }
+        } finally {
+            this.stack = stack;
+        }
+    }
+
+    boolean isLeaf(int node) {
+        return child1[node] == NULL;
+    }
+
+    void checkLeaf(int id) {
+        if (id < 0 || id >= capacity || height[id] != 0) {
+            throw new IllegalArgumentException("Invalid id: " + id);
+        }
+    }
+
+    boolean overlaps(int node, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        int o = node * 6;
+        return bounds[o] <= maxX && bounds[o + 3] >= minX && bounds[o + 1] <= maxY && bounds[o + 4] >= minY && bounds[o + 2] <= maxZ && bounds[o + 5] >= minZ;
+    }
+
+    boolean rayHits(int node, double originX, double originY, double originZ, double directionX, double directionY, double directionZ, double maxDistance) {
+        int o = node * 6;
+        double tMin = 0;
+        double tMax = maxDistance;
+        for (int axis = 0; axis < 3; axis++) {
+            double origin = axis == 0 ? originX : axis == 1 ? originY : originZ;
+            double direction = axis == 0 ? directionX : axis == 1 ? directionY : directionZ;
+            double min = bounds[o + axis];
+            double max = bounds[o + 3 + axis];
+            if (direction == 0) {
+                if (origin < min || origin > max) {
+                    return false;
+                }
+            } else {
+                double inverse = 1.0D / direction;
+                double t1 = (min - origin) * inverse;
+                double t2 = (max - origin) * inverse;
+                if (t1 > t2) {
+                    double t = t1;
+                    t1 = t2;
+                    t2 = t;
+                }
+                tMin = Math.max(tMin, t1);
+                tMax = Math.min(tMax, t2);
+                if (tMin > tMax) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the shared traversal stack, or a new one if it's already in use by an enclosing traversal
+     */
+    int[] takeStack() {
+        int[] stack = this.stack;
+        if (stack == null) {
+            return new int[64];
+        }
+        this.stack = null;
+        return stack;
+    }
+
+    void setFat(int id, BoundingBox boundingBox, double dx, double dy, double dz) {
+        int o = id * 6;
+        bounds[o] = boundingBox.minX - margin + Math.min(dx * 2, 0);
+        bounds[o + 1] = boundingBox.minY - margin + Math.min(dy * 2, 0);
+        bounds[o + 2] = boundingBox.minZ - margin + Math.min(dz * 2, 0);
+        bounds[o + 3] = boundingBox.maxX + margin + Math.max(dx * 2, 0);
+        bounds[o + 4] = boundingBox.maxY + margin + Math.max(dy * 2, 0);
+        bounds[o + 5] = boundingBox.maxZ + margin + Math.max(dz * 2, 0);
+    }
+
+    void setCombined(int node, int a, int b) {
+        int o = node * 6;
+        int oa = a * 6;
+        int ob = b * 6;
+        for (int i = 0; i < 3; i++) {
+            bounds[o + i] = Math.min(bounds[oa + i], bounds[ob + i]);
+            bounds[o + 3 + i] = Math.max(bounds[oa + 3 + i], bounds[ob + 3 + i]);
+        }
+    }
+
+    double surfaceArea(int node) {
+        int o = node * 6;
+        double x = bounds[o + 3] - bounds[o];
+        double y = bounds[o + 4] - bounds[o + 1];
+        double z = bounds[o + 5] - bounds[o + 2];
+        return 2 * (x * y + y * z + z * x);
+    }
+
+    double combinedSurfaceArea(int a, int b) {
+        int oa = a * 6;
+        int ob = b * 6;
+        double x = Math.max(bounds[oa + 3], bounds[ob + 3]) - Math.min(bounds[oa], bounds[ob]);
+        double y = Math.max(bounds[oa + 4], bounds[ob + 4]) - Math.min(bounds[oa + 1], bounds[ob + 1]);
+        double z = Math.max(bounds[oa + 5], bounds[ob + 5]) - Math.min(bounds[oa + 2], bounds[ob + 2]);
+        return 2 * (x * y + y * z + z * x);
+    }
+
+    int allocateNode() {
+        if (freeList == NULL) {
+            grow(capacity * 2);
+        }
+        int id = freeList;
+        freeList = parent[id];
+        parent[id] = NULL;
+        child1[id] = NULL;
+        child2[id] = NULL;
+        height[id] = 0;
+        data[id] = null;
+        nodeCount++;
+        return id;
+    }
+
+    void freeNode(int id) {
+        parent[id] = freeList;
+        height[id] = -1;
+        data[id] = null;
+        freeList = id;
+        nodeCount--;
+    }
+
+    void grow(int newCapacity) {
+        int oldCapacity = capacity;
+        bounds = Arrays.copyOf(bounds, newCapacity * 6);
+        parent = Arrays.copyOf(parent, newCapacity);
+        child1 = Arrays.copyOf(child1, newCapacity);
+        child2 = Arrays.copyOf(child2, newCapacity);
+        height = Arrays.copyOf(height, newCapacity);
+        data = Arrays.copyOf(data, newCapacity);
+        for (int i = newCapacity - 1; i >= oldCapacity; i--) {
+            parent[i] = freeList;
+            height[i] = -1;
+            freeList = i;
+        }
+        capacity = newCapacity;
+    }
+
+    void insertLeaf(int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            parent[root] = NULL;
+            return;
+        }
+
+        // Find the best sibling, using the surface area heuristic
+        int index = root;
+        while (!isLeaf(index)) {
+            int c1 = child1[index];
+            int c2 = child2[index];
+
+            double area = surfaceArea(index);
+            double combinedArea = combinedSurfaceArea(index, leaf);
+
+            // Cost of creating a new parent for this node and the new leaf
+            double cost = 2 * combinedArea;
+            // Minimum cost of pushing the leaf further down the tree
+            double inheritanceCost = 2 * (combinedArea - area);
+
+            double cost1 = combinedSurfaceArea(c1, leaf) + inheritanceCost - (isLeaf(c1) ? 0 : surfaceArea(c1));
+            double cost2 = combinedSurfaceArea(c2, leaf) + inheritanceCost - (isLeaf(c2) ? 0 : surfaceArea(c2));
+
+            if (cost < cost1 && cost < cost2) {
+                break;
+            }
+            index = cost1 < cost2 ? c1 : c2;
+        }
+        int sibling = index;
+
+        int oldParent = parent[sibling];
+        int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        setCombined(newParent, leaf, sibling);
+        height[newParent] = height[sibling] + 1;
+
+        if (oldParent != NULL) {
+            if (child1[oldParent] == sibling) {
+                child1[oldParent] = newParent;
+            } else {
+                child2[oldParent] = newParent;
+            }
+        } else {
+            root = newParent;
+        }
+        child1[newParent] = sibling;
+        child2[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+
+        refit(parent[leaf]);
+    }
+
+    void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+
+        int p = parent[leaf];
+        int grandParent = parent[p];
+        int sibling = child1[p] == leaf ? child2[p] : child1[p];
+
+        if (grandParent != NULL) {
+            if (child1[grandParent] == p) {
+                child1[grandParent] = sibling;
+            } else {
+                child2[grandParent] = sibling;
+            }
+            parent[sibling] = grandParent;
+            freeNode(p);
+
+            refit(grandParent);
+        } else {
+            root = sibling;
+            parent[sibling] = NULL;
+            freeNode(p);
+        }
+    }
+
+    // Walks back up from the node, balancing and recalculating the boxes & heights of its ancestors
+    void refit(int index) {
+        while (index != NULL) {
+            index = balance(index);
+
+            int c1 = child1[index];
+            int c2 = child2[index];
+            height[index] = 1 + Math.max(height[c1], height[c2]);
+            setCombined(index, c1, c2);
+
+            index = parent[index];
+        }
+    }
+
+    // Performs a left or right rotation if node A is imbalanced, returns the new root of the subtree
+    int balance(int iA) {
+        if (isLeaf(iA) || height[iA] < 2) {
+            return iA;
+        }
+
+        int iB = child1[iA];
+        int iC = child2[iA];
+        int balance = height[iC] - height[iB];
+
+        // Rotate C up
+        if (balance > 1) {
+            int iF = child1[iC];
+            int iG = child2[iC];
+
+            child1[iC] = iA;
+            parent[iC] = parent[iA];
+            parent[iA] = iC;
+
+            if (parent[iC] != NULL) {
+                if (child1[parent[iC]] == iA) {
+                    child1[parent[iC]] = iC;
+                } else {
+                    child2[parent[iC]] = iC;
+                }
+            } else {
+                root = iC;
+            }
+
+            if (height[iF] > height[iG]) {
+                child2[iC] = iF;
+                child2[iA] = iG;
+                parent[iG] = iA;
+                setCombined(iA, iB, iG);
+                setCombined(iC, iA, iF);
+                height[iA] = 1 + Math.max(height[iB], height[iG]);
+                height[iC] = 1 + Math.max(height[iA], height[iF]);
+            } else {
+                child2[iC] = iG;
+                child2[iA] = iF;
+                parent[iF] = iA;
+                setCombined(iA, iB, iF);
+                setCombined(iC, iA, iG);
+                height[iA] = 1 + Math.max(height[iB], height[iF]);
+                height[iC] = 1 + Math.max(height[iA], height[iG]);
+            }
+            return iC;
+        }
+
+        // Rotate B up
+        if (balance < -1) {
+            int iD = child1[iB];
+            int iE = child2[iB];
+
+            child1[iB] = iA;
+            parent[iB] = parent[iA];
+            parent[iA] = iB;
+
+            if (parent[iB] != NULL) {
+                if (child1[parent[iB]] == iA) {
+                    child1[parent[iB]] = iB;
+                } else {
+                    child2[parent[iB]] = iB;
+                }
+            } else {
+                root = iB;
+            }
+
+            if (height[iD] > height[iE]) {
+                child2[iB] = iD;
+                child1[iA] = iE;
+                parent[iE] = iA;
+                setCombined(iA, iC, iE);
+                setCombined(iB, iA, iD);
+                height[iA] = 1 + Math.max(height[iC], height[iE]);
+                height[iB] = 1 + Math.max(height[iA], height[iD]);
+            } else {
+                child2[iB] = iE;
+                child1[iA] = iD;
+                parent[iD] = iA;
+                setCombined(iA, iC, iD);
+                setCombined(iB, iA, iE);
+                height[iA] = 1 + Math.max(height[iC], height[iD]);
+                height[iB] = 1 + Math.max(height[iA], height[iE]);
+            }
+            return iB;
+        }
+
+        return iA;
+    }
+
+}
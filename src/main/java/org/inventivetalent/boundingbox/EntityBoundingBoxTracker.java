@@ -0,0 +1,262 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the last known bounding box of each entity and reports only the entities which entered, moved or left since the previous update
+ * <p>
+ * Boxes are stored in primitive arrays keyed by entity id. Since NMS replaces an entity's AxisAlignedBB instance whenever it moves, unchanged entities are detected with a single reference comparison.
+ * <p>
+ * Not thread-safe, and {@link #update(Iterable)} must be called on the main thread.
+ */
+public class EntityBoundingBoxTracker {
+
+    private final EntityBoundingBoxListener listener;
+
+    // Open addressing map from entity id to slot
+    private int[] keys;
+    private boolean[] used;
+    private double[] boxes;// 6 values per slot
+    private Object[] axisAlignedBBs;
+    private int[] stamps;
+    private int mask;
+    private int size;
+
+    private int tick;
+    private int[] removed = new int[16];
+
+    private final BoundingBox from = new BoundingBox();
+    private final BoundingBox to = new BoundingBox();
+
+    public EntityBoundingBoxTracker(EntityBoundingBoxListener listener) {
+        this.listener = listener;
+        allocate(64);
+    }
+
+    /**
+     * Updates all entities of the world
+     *
+     * @see #update(Iterable)
+     */
+    public void update(World world) {
+        update(world.getEntities());
+    }
+
+    /**
+     * Compares the current bounding boxes of the entities with the ones from the previous update, and calls the listener for all changes.
+     * Tracked entities which aren't part of the entities anymore are removed.
+     *
+     * @param entities all entities to track
+     */
+    public void update(Iterable<? extends Entity> entities) {
+        tick++;
+        for (Entity entity : entities) {
+            int id = entity.getEntityId();
+            Object axisAlignedBB = BoundingBoxAPI.getEntityAxisAlignedBB(entity, BoundingBoxMetrics.Metric.ENTITY_TRACKER_READ);
+
+            int slot = find(id);
+            if (slot < 0) {
+                slot = insert(id);
+                stamps[slot] = tick;
+                axisAlignedBBs[slot] = axisAlignedBB;
+                BoundingBox.fromNMS(axisAlignedBB, boxes, slot * 6);
+                listener.onEnter(entity, copy(slot, to));
+                continue;
+            }
+            stamps[slot] = tick;
+            if (axisAlignedBBs[slot] == axisAlignedBB) {
+                continue;
+            }
+            axisAlignedBBs[slot] = axisAlignedBB;
+
+            BoundingBox.fromNMS(axisAlignedBB, to);
+            int o = slot * 6;
+            if (boxes[o] == to.minX && boxes[o + 1] == to.minY && boxes[o + 2] == to.minZ && boxes[o + 3] == to.maxX && boxes[o + 4] == to.maxY && boxes[o + 5] == to.maxZ) {
+                continue;
+            }
+            copy(slot, from);
+            boxes[o] = to.minX;
+            boxes[o + 1] = to.minY;
+            boxes[o + 2] = to.minZ;
+            boxes[o + 3] = to.maxX;
+            boxes[o + 4] = to.maxY;
+            boxes[o + 5] = to.maxZ;
+            listener.onMove(entity, from, to);
+        }
+
+        int removedCount = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (used[slot] && stamps[slot] != tick) {
+                if (removedCount == removed.length) {
+                    removed = Arrays.copyOf(removed, removedCount * 2);
+                }
+                removed[removedCount++] = keys[slot];
+            }
+        }
+        for (int i = 0; i < removedCount; i++) {
+            int slot = find(removed[i]);
+            copy(slot, from);
+            remove(slot);
+            listener.onLeave(removed[i], from);
+        }
+    }
+
+    /**
+     * Copies the last known bounding box of an entity into an existing BoundingBox
+     *
+     * @return <code>false</code> if the entity isn't tracked
+     */
+    public boolean getBoundingBox(int entityId, BoundingBox dest) {
+        int slot = find(entityId);
+        if (slot < 0) {
+            return false;
+        }
+        copy(slot, dest);
+        return true;
+    }
+
+    public boolean isTracked(int entityId) {
+        return find(entityId) >= 0;
+    }
+
+    /**
+     * @return the number of tracked entities
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Stops tracking all entities, without calling the listener
+     */
+    public void clear() {
+        allocate(64);
+    }
+
+    BoundingBox copy(int slot, BoundingBox dest) {
+        int o = slot * 6;
+        dest.minX = boxes[o];
+        dest.minY = boxes[o + 1];
+        dest.minZ = boxes[o + 2];
+        dest.maxX = boxes[o + 3];
+        dest.maxY = boxes[o + 4];
+        dest.maxZ = boxes[o + 5];
+        return dest;
+    }
+
+    void allocate(int capacity) {
+        keys = new int[capacity];
+        used = new boolean[capacity];
+        boxes = new double[capacity * 6];
+        axisAlignedBBs = new Object[capacity];
+        stamps = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return slot of the key, or a negative value if it's not in the map
+     */
+    int find(int key) {
+        int slot = hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    int insert(int key) {
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+        int slot = hash(key) & mask;
+        while (used[slot]) {
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        size++;
+        return slot;
+    }
+
+    void grow() {
+        int[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        double[] oldBoxes = boxes;
+        Object[] oldAxisAlignedBBs = axisAlignedBBs;
+        int[] oldStamps = stamps;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = insert(oldKeys[i]);
+                System.arraycopy(oldBoxes, i * 6, boxes, slot * 6, 6);
+                axisAlignedBBs[slot] = oldAxisAlignedBBs[i];
+                stamps[slot] = oldStamps[i];
+            }
+        }
+    }
+
+    // Backward shift deletion, so lookups don't need tombstones
+    void remove(int slot) {
+        int free = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (!used[next]) {
+                break;
+            }
+            int home = hash(keys[next]) & mask;
+            // Move the entry into the free slot if its home isn't cyclically between the free slot and its current slot
+            if (free <= next ? (home <= free || home > next) : (home <= free && home > next)) {
+                keys[free] = keys[next];
+                System.arraycopy(boxes, next * 6, boxes, free * 6, 6);
+                axisAlignedBBs[free] = axisAlignedBBs[next];
+                stamps[free] = stamps[next];
+                free = next;
+            }
+        }
+        used[free] = false;
+        axisAlignedBBs[free] = null;
+        size--;
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.inventivetalent.reflection.minecraft.Minecraft;
+import org.inventivetalent.reflection.minecraft.MinecraftVersion;
+import org.inventivetalent.reflection.resolver.ResolverQuery;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+import static org.inventivetalent.boundingbox.BoundingBoxAPI.AxisAlignedBB;
+import static org.inventivetalent.boundingbox.BoundingBoxAPI.EntityFieldResolver;
+import static org.inventivetalent.boundingbox.BoundingBoxAPI.EntityMethodResolver;
+
+/**
+ * Version-specific access to an entity's NMS {@code AxisAlignedBB}.
+ * <p>
+ * Exactly one implementation is selected by {@link #select()} and the bounding box field is looked up in the constructor,
+ * so a mapping change fails when {@link BoundingBoxAPI} is initialized instead of on the first lookup.
+ * {@code Entity#setSize(float, float)} is optional, since only {@link #setSize(Object, float, float)} depends on it.
+ */
+interface EntityBoxStrategy {
+
+    /**
+     * @param entity NMS entity
+     * @return the entity's current absolute NMS AxisAlignedBB
+     */
+    Object getAxisAlignedBB(Object entity) throws Throwable;
+
+    /**
+     * @param entity        NMS entity
+     * @param axisAlignedBB new absolute NMS AxisAlignedBB
+     */
+    void setAxisAlignedBB(Object entity, Object axisAlignedBB) throws Throwable;
+
+    /**
+     * @param entity NMS entity
+     * @throws IllegalStateException if the version doesn't have {@code Entity#setSize(float, float)}, or it couldn't be resolved
+     */
+    void setSize(Object entity, float width, float length) throws Throwable;
+
+    /**
+     * @return the implementation for the running server version
+     */
+    static EntityBoxStrategy select() throws ReflectiveOperationException {
+        if (MinecraftVersion.VERSION.newerThan(Minecraft.Version.v1_14_R1)) {
+            return new V1_14();
+        }
+        return new V1_8();
+    }
+
+    abstract class Base implements EntityBoxStrategy {
+
+        final MethodHandle getter;
+        final MethodHandle setter;
+
+        Base() throws ReflectiveOperationException {
+            if (AxisAlignedBB == null) {
+                throw new ClassNotFoundException("AxisAlignedBB");
+            }
+            Field boundingBoxField = EntityFieldResolver.resolveByLastType(AxisAlignedBB);
+            getter = MethodHandles.lookup().unreflectGetter(boundingBoxField).asType(MethodType.methodType(Object.class, Object.class));
+            setter = MethodHandles.lookup().unreflectSetter(boundingBoxField).asType(MethodType.methodType(void.class, Object.class, Object.class));
+        }
+
+        @Override
+        public final Object getAxisAlignedBB(Object entity) throws Throwable {
+            return (Object) getter.invokeExact(entity);
+        }
+
+        @Override
+        public final void setAxisAlignedBB(Object entity, Object axisAlignedBB) throws Throwable {
+            setter.invokeExact(entity, axisAlignedBB);
+        }
+
+    }
+
+    /**
+     * 1.8 - 1.13: {@code Entity#setSize(float, float)}
+     */
+    final class V1_8 extends Base {
+
+        final MethodHandle setSize;
+        final Throwable setSizeError;
+
+        V1_8() throws ReflectiveOperationException {
+            MethodHandle setSize;
+            Throwable setSizeError;
+            try {
+                setSize = MethodHandles.lookup().unreflect(EntityMethodResolver.resolve(new ResolverQuery("setSize", float.class, float.class)))
+                        .asType(MethodType.methodType(void.class, Object.class, float.class, float.class));
+                setSizeError = null;
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                setSize = null;
+                setSizeError = e;
+            }
+            this.setSize = setSize;
+            this.setSizeError = setSizeError;
+        }
+
+        @Override
+        public void setSize(Object entity, float width, float length) throws Throwable {
+            if (setSize == null) {
+                throw new IllegalStateException("Entity#setSize(float, float) could not be resolved", setSizeError);
+            }
+            setSize.invokeExact(entity, width, length);
+        }
+
+    }
+
+    /**
+     * 1.14+: sizes are fixed per entity type ({@code EntitySize}), so there is no setter
+     */
+    final class V1_14 extends Base {
+
+        V1_14() throws ReflectiveOperationException {
+        }
+
+        @Override
+        public void setSize(Object entity, float width, float length) {
+            throw new IllegalStateException("Entity#setSize(float, float) is not available on this version");
+        }
+
+    }
+
+}
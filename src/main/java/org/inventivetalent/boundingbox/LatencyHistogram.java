@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with logarithmic buckets (8 linear sub-buckets per power of two, so values are accurate to within 12.5%)
+ */
+class LatencyHistogram {
+
+    static final int SUB_BUCKETS = 8;
+    static final int SUB_BUCKET_BITS = 3;
+    static final int BUCKETS = SUB_BUCKETS * 2 + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    final LongAdder[] buckets = new LongAdder[BUCKETS];
+    final LongAdder count = new LongAdder();
+    final LongAdder total = new LongAdder();
+    final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets[index(nanos)].increment();
+        count.increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS * 2) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS * 2 + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // Lowest value which falls into the bucket
+    static long lowestValue(int index) {
+        if (index < SUB_BUCKETS * 2) {
+            return index;
+        }
+        int exponent = (index - SUB_BUCKETS * 2) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        int subBucket = (index - SUB_BUCKETS * 2) % SUB_BUCKETS;
+        return (1L << exponent) | ((long) subBucket << (exponent - SUB_BUCKET_BITS));
+    }
+
+    void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+
+    MetricSnapshot snapshot(BoundingBoxMetrics.Metric metric) {
+        long[] counts = new long[BUCKETS];
+        long sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            sum += counts[i];
+        }
+        return new MetricSnapshot(metric, count.sum(), total.sum(), max.get(), percentile(counts, sum, 0.5), percentile(counts, sum, 0.9), percentile(counts, sum, 0.99), percentile(counts, sum, 0.999));
+    }
+
+    static long percentile(long[] counts, long sum, double percentile) {
+        if (sum == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(sum * percentile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return lowestValue(i);
+            }
+        }
+        return lowestValue(counts.length - 1);
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only, memory-mapped view of a file written by {@link BoundingBoxCodec}, which decodes boxes only when they're accessed
+ * <p>
+ * Instances are thread-safe, since all reads use absolute positions.
+ */
+public class MappedBoundingBoxFile {
+
+    private final MappedByteBuffer buffer;
+    private final BoundingBoxCodec.Format format;
+    private final int recordSize;
+    private final int count;
+
+    MappedBoundingBoxFile(MappedByteBuffer buffer, BoundingBoxCodec.Format format, int count) {
+        this.buffer = buffer;
+        this.format = format;
+        this.recordSize = format.recordSize;
+        this.count = count;
+    }
+
+    /**
+     * Maps a file. The mapping stays valid until it's garbage collected, even after the file is closed.
+     */
+    public static MappedBoundingBoxFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + size + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            BoundingBoxCodec.Format format = BoundingBoxCodec.readFormat(buffer);
+            int count = buffer.getInt();
+            if (count < 0 || BoundingBoxCodec.HEADER_SIZE + (long) count * format.recordSize > size) {
+                throw new IOException("Truncated bounding box file, expected " + count + " boxes");
+            }
+            return new MappedBoundingBoxFile(buffer, format, count);
+        }
+    }
+
+    public BoundingBoxCodec.Format getFormat() {
+        return format;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public BoundingBox get(int index) {
+        return get(index, new BoundingBox());
+    }
+
+    /**
+     * Decodes the box at the index into an existing BoundingBox
+     *
+     * @return the destination BoundingBox
+     */
+    public BoundingBox get(int index, BoundingBox dest) {
+        int o = offset(index);
+        dest.minX = value(o, 0);
+        dest.minY = value(o, 1);
+        dest.minZ = value(o, 2);
+        dest.maxX = value(o, 3);
+        dest.maxY = value(o, 4);
+        dest.maxZ = value(o, 5);
+        return dest;
+    }
+
+    /**
+     * @return <code>true</code> if the box at the index intersects the other box, without decoding the whole box
+     */
+    public boolean intersects(int index, BoundingBox other) {
+        int o = offset(index);
+        return value(o, 0) < other.maxX && value(o, 3) > other.minX && value(o, 1) < other.maxY && value(o, 4) > other.minY && value(o, 2) < other.maxZ && value(o, 5) > other.minZ;
+    }
+
+    /**
+     * @return <code>true</code> if the box at the index contains the point, without decoding the whole box
+     */
+    public boolean contains(int index, double x, double y, double z) {
+        int o = offset(index);
+        return x > value(o, 0) && x < value(o, 3) && y > value(o, 1) && y < value(o, 4) && z > value(o, 2) && z < value(o, 5);
+    }
+
+    int offset(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+        }
+        return BoundingBoxCodec.HEADER_SIZE + index * recordSize;
+    }
+
+    double value(int offset, int component) {
+        switch (format) {
+            case DOUBLE:
+                return buffer.getDouble(offset + component * 8);
+            case FLOAT:
+                return buffer.getFloat(offset + component * 4);
+            default:
+                return buffer.getInt(offset + component * 4);
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BlockRegionTest {
+
+    @Test
+    public void packRoundTrip() {
+        int[] chunks = {-100, -2, -1, 0, 1, 31};
+        int[][] ys = {{-64, -64}, {-64, 319}, {-1, 0}, {0, 255}, {100, 2047}, {-2048, -1000}};
+        for (int chunkX : chunks) {
+            for (int chunkZ : chunks) {
+                for (int[] y : ys) {
+                    for (int x1 = 0; x1 < 16; x1 += 5) {
+                        for (int z1 = 0; z1 < 16; z1 += 3) {
+                            BlockRegion region = new BlockRegion((chunkX << 4) + x1, y[0], (chunkZ << 4) + z1, (chunkX << 4) + 15, y[1], (chunkZ << 4) + z1 / 2 + 8);
+                            assertTrue(region.isChunkLocal());
+                            assertEquals(region, BlockRegion.unpackLocal(region.packLocal(), chunkX, chunkZ));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void chunkLocal() {
+        assertTrue(new BlockRegion(-16, 0, -16, -1, 0, -1).isChunkLocal());
+        assertFalse(new BlockRegion(-1, 0, 0, 0, 0, 0).isChunkLocal());
+        assertFalse(new BlockRegion(0, 0, 15, 0, 0, 16).isChunkLocal());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void packRejectsMultipleChunks() {
+        new BlockRegion(0, 0, 0, 16, 0, 0).packLocal();
+    }
+
+    @Test
+    public void boundingBoxConversion() {
+        BlockRegion region = BlockRegion.fromBoundingBox(new BoundingBox(-0.5, 1, 2.5, 1.5, 2, 3));
+        assertEquals(new BlockRegion(-1, 1, 2, 1, 1, 2), region);
+        assertEquals(new BoundingBox(-1, 1, 2, 2, 2, 3), region.toBoundingBox());
+        assertEquals(3, region.volume());
+    }
+
+}
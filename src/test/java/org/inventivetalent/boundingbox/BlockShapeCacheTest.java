@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class BlockShapeCacheTest {
+
+    static final UUID WORLD_ID = UUID.randomUUID();
+
+    // Only the world's UID may be used, any other access would be unsafe off the main thread
+    static final World WORLD = (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class[] { World.class }, (proxy, method, args) -> {
+        if (method.getName().equals("getUID")) {
+            return WORLD_ID;
+        }
+        throw new AssertionError("World#" + method.getName() + " called");
+    });
+
+    final Object stone = new Object();
+    final Object grass = new Object();
+    final Object movingPiston = new Object();
+    final Object unknown = new Object();
+
+    BlockShapeCache newCache() {
+        Map<Object, Material> materials = new HashMap<>();
+        materials.put(stone, Material.STONE);
+        materials.put(grass, Material.LONG_GRASS);
+        materials.put(movingPiston, Material.PISTON_MOVING_PIECE);
+        return new BlockShapeCache(16, 16, materials::get);
+    }
+
+    @Test
+    public void cachesByState() {
+        BlockShapeCache cache = newCache();
+        double[] shape = { 0, 0, 0, 1, 1, 1 };
+        assertNull(cache.get(WORLD, 0, 0, 0, stone));
+        cache.put(WORLD, 0, 0, 0, stone, shape);
+        assertSame(shape, cache.get(WORLD, 5, 6, 7, stone));
+        assertEquals(BlockShapeCache.Caching.STATE, cache.getCaching(stone));
+    }
+
+    @Test
+    public void cachesPositionDependentStatesByPosition() {
+        BlockShapeCache cache = newCache();
+        double[] shape = { 0.1, 0, 0.1, 0.9, 0.8, 0.9 };
+        cache.put(WORLD, 1, 2, 3, grass, shape);
+        assertSame(shape, cache.get(WORLD, 1, 2, 3, grass));
+        assertNull(cache.get(WORLD, 1, 2, 4, grass));
+        // A different state at the same position
+        assertNull(cache.get(WORLD, 1, 2, 3, stone));
+        assertEquals(BlockShapeCache.Caching.POSITION, cache.getCaching(grass));
+    }
+
+    @Test
+    public void doesNotCacheTileEntityShapes() {
+        BlockShapeCache cache = newCache();
+        cache.put(WORLD, 0, 0, 0, movingPiston, new double[0]);
+        assertNull(cache.get(WORLD, 0, 0, 0, movingPiston));
+        assertEquals(0, cache.size());
+        assertEquals(BlockShapeCache.Caching.NONE, cache.getCaching(movingPiston));
+    }
+
+    @Test
+    public void doesNotCacheStatesWithoutMaterial() {
+        BlockShapeCache cache = newCache();
+        cache.put(WORLD, 0, 0, 0, unknown, new double[0]);
+        assertNull(cache.get(WORLD, 0, 0, 0, unknown));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void changingPredicatesClearsCache() {
+        BlockShapeCache cache = newCache();
+        cache.put(WORLD, 0, 0, 0, stone, new double[0]);
+        cache.setUncacheable(material -> material == Material.STONE);
+        assertNull(cache.get(WORLD, 0, 0, 0, stone));
+        assertEquals(BlockShapeCache.Caching.NONE, cache.getCaching(stone));
+        cache.setPositionDependent(material -> material == Material.STONE);
+        cache.setUncacheable(material -> false);
+        assertEquals(BlockShapeCache.Caching.POSITION, cache.getCaching(stone));
+    }
+
+}
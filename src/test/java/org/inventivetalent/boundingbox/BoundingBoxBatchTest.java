@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BoundingBoxBatchTest {
+
+    static BoundingBox randomBox(Random random) {
+        double x = random.nextInt(32) + random.nextDouble();
+        double y = random.nextInt(32) + random.nextDouble();
+        double z = random.nextInt(32) + random.nextDouble();
+        return new BoundingBox(x, y, z, x + random.nextDouble() * 4, y + random.nextDouble() * 4, z + random.nextDouble() * 4);
+    }
+
+    @Test
+    public void addGrowsAndKeepsValues() {
+        BoundingBoxBatch batch = new BoundingBoxBatch(1);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, batch.add(i, i + 1, i + 2, i + 3, i + 4, i + 5));
+        }
+        assertEquals(100, batch.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(new BoundingBox(i, i + 1, i + 2, i + 3, i + 4, i + 5), batch.get(i));
+        }
+    }
+
+    @Test
+    public void addAllReadsFromOffset() {
+        double[] boxes = {-1, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12};
+        BoundingBoxBatch batch = new BoundingBoxBatch(1);
+        batch.addAll(boxes, 2, 2);
+        assertEquals(2, batch.size());
+        assertEquals(new BoundingBox(1, 2, 3, 4, 5, 6), batch.get(0));
+        assertEquals(new BoundingBox(7, 8, 9, 10, 11, 12), batch.get(1));
+    }
+
+    @Test
+    public void setReplacesBox() {
+        BoundingBoxBatch batch = new BoundingBoxBatch();
+        batch.add(0, 0, 0, 1, 1, 1);
+        batch.set(0, 2, 2, 2, 3, 3, 3);
+        assertEquals(new BoundingBox(2, 2, 2, 3, 3, 3), batch.get(0, new BoundingBox()));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getOutOfBounds() {
+        BoundingBoxBatch batch = new BoundingBoxBatch(16);
+        batch.add(0, 0, 0, 1, 1, 1);
+        batch.get(1);
+    }
+
+    @Test
+    public void queriesMatchBoundingBox() {
+        Random random = new Random(42);
+        BoundingBoxBatch batch = new BoundingBoxBatch();
+        BoundingBox[] boxes = new BoundingBox[500];
+        for (int i = 0; i < boxes.length; i++) {
+            boxes[i] = randomBox(random);
+            batch.add(boxes[i]);
+        }
+        // Touching boxes must not count as intersecting
+        BoundingBox touching = new BoundingBox(boxes[0].maxX, boxes[0].minY, boxes[0].minZ, boxes[0].maxX + 1, boxes[0].maxY, boxes[0].maxZ);
+        assertFalse(batch.intersectsAll(touching, new BitSet()).get(0));
+
+        BitSet bits = new BitSet();
+        for (int q = 0; q < 200; q++) {
+            BoundingBox query = randomBox(random);
+            batch.intersectsAll(query, bits);
+            int count = 0;
+            for (int i = 0; i < boxes.length; i++) {
+                boolean expected = boxes[i].intersects(query);
+                assertEquals(expected, bits.get(i));
+                count += expected ? 1 : 0;
+            }
+            assertEquals(count, batch.countIntersections(query));
+
+            double x = random.nextDouble() * 36, y = random.nextDouble() * 36, z = random.nextDouble() * 36;
+            batch.containsPointAll(x, y, z, bits);
+            for (int i = 0; i < boxes.length; i++) {
+                assertEquals(boxes[i].contains(x, y, z), bits.get(i));
+            }
+        }
+    }
+
+}
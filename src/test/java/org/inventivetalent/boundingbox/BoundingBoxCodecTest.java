@@ -0,0 +1,212 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BoundingBoxCodecTest {
+
+    static BoundingBoxBatch randomBatch(int count, boolean blockAligned) {
+        Random random = new Random(count);
+        BoundingBoxBatch batch = new BoundingBoxBatch();
+        for (int i = 0; i < count; i++) {
+            double x = random.nextInt(2000) - 1000, y = random.nextInt(384) - 64, z = random.nextInt(2000) - 1000;
+            if (blockAligned) {
+                batch.add(x, y, z, x + random.nextInt(4) + 1, y + random.nextInt(4) + 1, z + random.nextInt(4) + 1);
+            } else {
+                batch.add(x + random.nextDouble(), y + random.nextDouble(), z + random.nextDouble(), x + 1 + random.nextDouble(), y + 1 + random.nextDouble(), z + 1 + random.nextDouble());
+            }
+        }
+        return batch;
+    }
+
+    static BoundingBoxBatch roundTrip(BoundingBoxBatch batch, BoundingBoxCodec.Format format) throws IOException {
+        Path file = Files.createTempFile("boxes", ".bin");
+        try {
+            BoundingBoxCodec.writeAll(batch, format, file);
+            assertEquals(BoundingBoxCodec.HEADER_SIZE + (long) batch.size() * format.getRecordSize(), Files.size(file));
+            return BoundingBoxCodec.readAll(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    static void assertBatchEquals(BoundingBoxBatch expected, BoundingBoxBatch actual, double delta) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            BoundingBox a = expected.get(i), b = actual.get(i);
+            assertEquals(a.minX, b.minX, delta);
+            assertEquals(a.minY, b.minY, delta);
+            assertEquals(a.minZ, b.minZ, delta);
+            assertEquals(a.maxX, b.maxX, delta);
+            assertEquals(a.maxY, b.maxY, delta);
+            assertEquals(a.maxZ, b.maxZ, delta);
+        }
+    }
+
+    @Test
+    public void doubleRoundTripIsExact() throws IOException {
+        // More boxes than fit into a single write buffer
+        BoundingBoxBatch batch = randomBatch(5000, false);
+        assertBatchEquals(batch, roundTrip(batch, BoundingBoxCodec.Format.DOUBLE), 0);
+    }
+
+    @Test
+    public void floatRoundTripIsClose() throws IOException {
+        BoundingBoxBatch batch = randomBatch(1000, false);
+        assertBatchEquals(batch, roundTrip(batch, BoundingBoxCodec.Format.FLOAT), 1.0E-4);
+    }
+
+    @Test
+    public void intRoundTripIsExact() throws IOException {
+        BoundingBoxBatch batch = randomBatch(1000, true);
+        assertBatchEquals(batch, roundTrip(batch, BoundingBoxCodec.Format.INT), 0);
+    }
+
+    @Test
+    public void emptyRoundTrip() throws IOException {
+        assertEquals(0, roundTrip(new BoundingBoxBatch(), BoundingBoxCodec.Format.DOUBLE).size());
+    }
+
+    @Test
+    public void singleRecord() {
+        ByteBuffer buffer = ByteBuffer.allocate(48).order(ByteOrder.LITTLE_ENDIAN);
+        BoundingBox box = new BoundingBox(-1.5, 2.25, 3, 4, 5.125, 6);
+        BoundingBoxCodec.write(box, BoundingBoxCodec.Format.DOUBLE, buffer);
+        assertEquals(48, buffer.position());
+        buffer.flip();
+        assertEquals(box, BoundingBoxCodec.read(buffer, BoundingBoxCodec.Format.DOUBLE, new BoundingBox()));
+    }
+
+    @Test
+    public void singleRecordIsLittleEndian() {
+        // Big-endian by default
+        ByteBuffer buffer = ByteBuffer.allocate(24);
+        BoundingBoxCodec.write(new BoundingBox(1, 2, 3, 4, 5, 6), BoundingBoxCodec.Format.INT, buffer);
+        assertEquals(ByteOrder.LITTLE_ENDIAN, buffer.order());
+        assertArrayEquals(new byte[] {1, 0, 0, 0}, Arrays.copyOf(buffer.array(), 4));
+
+        buffer.flip().order(ByteOrder.BIG_ENDIAN);
+        assertEquals(new BoundingBox(1, 2, 3, 4, 5, 6), BoundingBoxCodec.read(buffer, BoundingBoxCodec.Format.INT, new BoundingBox()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void intRejectsFractionalValues() {
+        BoundingBoxCodec.write(new BoundingBox(0, 0, 0, 1.5, 1, 1), BoundingBoxCodec.Format.INT, ByteBuffer.allocate(24));
+    }
+
+    @Test
+    public void mappedFileMatchesBatch() throws IOException {
+        BoundingBoxBatch batch = randomBatch(300, false);
+        Path file = Files.createTempFile("boxes", ".bin");
+        try {
+            BoundingBoxCodec.writeAll(batch, BoundingBoxCodec.Format.DOUBLE, file);
+            MappedBoundingBoxFile mapped = MappedBoundingBoxFile.open(file);
+            assertEquals(BoundingBoxCodec.Format.DOUBLE, mapped.getFormat());
+            assertEquals(batch.size(), mapped.size());
+            for (int i = 0; i < batch.size(); i++) {
+                assertEquals(batch.get(i), mapped.get(i));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsWrongMagic() throws IOException {
+        Path file = Files.createTempFile("boxes", ".bin");
+        try {
+            Files.write(file, new byte[BoundingBoxCodec.HEADER_SIZE]);
+            BoundingBoxCodec.readAll(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedFile() throws IOException {
+        Path file = Files.createTempFile("boxes", ".bin");
+        try {
+            BoundingBoxCodec.writeAll(randomBatch(10, false), BoundingBoxCodec.Format.DOUBLE, file);
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+            assertThrows(IOException.class, () -> BoundingBoxCodec.readAll(file));
+
+            // Count far larger than the file
+            ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(8, Integer.MAX_VALUE);
+            Files.write(file, bytes);
+            IOException e = assertThrows(IOException.class, () -> BoundingBoxCodec.readAll(file));
+            assertTrue(e.getMessage().startsWith("Truncated"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void rejectsNegativeCount() throws IOException {
+        Path file = Files.createTempFile("boxes", ".bin");
+        try {
+            BoundingBoxCodec.writeAll(randomBatch(10, false), BoundingBoxCodec.Format.DOUBLE, file);
+            byte[] bytes = Files.readAllBytes(file);
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(8, -5);
+            Files.write(file, bytes);
+            IOException read = assertThrows(IOException.class, () -> BoundingBoxCodec.readAll(file));
+            assertTrue(read.getMessage().startsWith("Truncated"));
+            IOException mapped = assertThrows(IOException.class, () -> MappedBoundingBoxFile.open(file));
+            assertEquals(read.getMessage(), mapped.getMessage());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void intWriteFailureWritesNothing() throws IOException {
+        BoundingBoxBatch batch = randomBatch(100, true);
+        batch.add(0, 0, 0, 1, 1, 1.5);
+        Path file = Files.createTempFile("boxes", ".bin");
+        try {
+            assertThrows(IllegalArgumentException.class, () -> BoundingBoxCodec.writeAll(batch, BoundingBoxCodec.Format.INT, file));
+            assertEquals(0, Files.size(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
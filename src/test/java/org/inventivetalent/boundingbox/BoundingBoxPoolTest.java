@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BoundingBoxPoolTest {
+
+    @Test
+    public void reusesReleasedBoxes() {
+        BoundingBoxPool pool = new BoundingBoxPool();
+        BoundingBox box = pool.take();
+        pool.give(box);
+        assertEquals(1, pool.size());
+        assertSame(box, pool.take());
+        assertEquals(0, pool.size());
+        // Taken again, so it may be released again
+        pool.give(box);
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void rejectsDoubleRelease() {
+        BoundingBoxPool pool = new BoundingBoxPool();
+        BoundingBox box = pool.take();
+        pool.give(box);
+        assertThrows(IllegalStateException.class, () -> pool.give(box));
+        assertThrows(IllegalStateException.class, () -> new BoundingBoxPool().give(box));
+        assertEquals(1, pool.size());
+        assertNotSame(pool.take(), pool.take());
+    }
+
+    @Test
+    public void sizeIsBounded() {
+        BoundingBoxPool pool = new BoundingBoxPool();
+        for (int i = 0; i < BoundingBoxPool.MAX_SIZE + 10; i++) {
+            pool.give(new BoundingBox());
+        }
+        assertEquals(BoundingBoxPool.MAX_SIZE, pool.size());
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.junit.Test;
+
+import java.util.function.UnaryOperator;
+
+import static org.junit.Assert.*;
+
+public class BoundingBoxTest {
+
+    @Test
+    public void mergeTouchingBoxes() {
+        // Two halves of a full block
+        double[] merged = BoundingBox.mergeBoxes(new double[] {
+                0, 0, 0, 1, 0.5, 1,//
+                0, 0.5, 0, 1, 1, 1});
+        assertArrayEquals(new double[] {0, 0, 0, 1, 1, 1}, merged, 0);
+    }
+
+    @Test
+    public void mergeChain() {
+        double[] merged = BoundingBox.mergeBoxes(new double[] {
+                0, 0, 0, 0.25, 1, 1,//
+                0.5, 0, 0, 0.75, 1, 1,//
+                0.25, 0, 0, 0.5, 1, 1,//
+                0.75, 0, 0, 1, 1, 1});
+        assertArrayEquals(new double[] {0, 0, 0, 1, 1, 1}, merged, 0);
+    }
+
+    @Test
+    public void dontMergeSeparateOrMisalignedBoxes() {
+        double[] stairs = {
+                0, 0, 0, 1, 0.5, 1,//
+                0, 0.5, 0.5, 1, 1, 1};
+        assertArrayEquals(stairs.clone(), BoundingBox.mergeBoxes(stairs), 0);
+
+        double[] gap = {
+                0, 0, 0, 0.25, 1, 1,//
+                0.75, 0, 0, 1, 1, 1};
+        assertArrayEquals(gap.clone(), BoundingBox.mergeBoxes(gap), 0);
+    }
+
+    @Test
+    public void sweepHitsFace() {
+        BoundingBox moving = new BoundingBox(0, 0, 0, 1, 1, 1);
+        double[] normal = new double[3];
+        assertEquals(0.5, moving.sweep(new BoundingBox(2, 0, 0, 3, 1, 1), 2, 0, 0, normal), 1.0E-9);
+        assertArrayEquals(new double[] {-1, 0, 0}, normal, 0);
+    }
+
+    @Test
+    public void sweepMissClearsNormal() {
+        BoundingBox moving = new BoundingBox(0, 0, 0, 1, 1, 1);
+        double[] normal = {1, 1, 1};
+        // Separated on the y-axis, which isn't moving
+        assertEquals(-1, moving.sweep(new BoundingBox(2, 5, 0, 3, 6, 1), 2, 0, 0, normal), 0);
+        assertArrayEquals(new double[3], normal, 0);
+
+        normal = new double[] {1, 1, 1};
+        assertEquals(-1, moving.sweep(new BoundingBox(5, 0, 0, 6, 1, 1), 2, 0, 0, normal), 0);
+        assertArrayEquals(new double[3], normal, 0);
+    }
+
+    @Test
+    public void sweepHitsYAndZFaces() {
+        BoundingBox moving = new BoundingBox(0, 0, 0, 1, 1, 1);
+        double[] normal = new double[3];
+        // Falling onto a box below
+        assertEquals(0.25, moving.sweep(new BoundingBox(0, -3, 0, 1, -1, 1), 0, -4, 0, normal), 1.0E-9);
+        assertArrayEquals(new double[] {0, 1, 0}, normal, 0);
+
+        assertEquals(0.5, moving.sweep(new BoundingBox(0, 0, 2, 1, 1, 3), 0, 0, 2, normal), 1.0E-9);
+        assertArrayEquals(new double[] {0, 0, -1}, normal, 0);
+
+        // Diagonal, hitting the z-face last
+        assertEquals(0.75, moving.sweep(new BoundingBox(0.5, 0.5, 4, 2, 2, 5), 1, 1, 4, normal), 1.0E-9);
+        assertArrayEquals(new double[] {0, 0, -1}, normal, 0);
+    }
+
+    @Test
+    public void sweepTouchingAtEndIsNoHit() {
+        BoundingBox moving = new BoundingBox(0, 0, 0, 1, 1, 1);
+        double[] normal = {1, 1, 1};
+        assertEquals(-1, moving.sweep(new BoundingBox(2, 0, 0, 3, 1, 1), 1, 0, 0, normal), 0);
+        assertArrayEquals(new double[3], normal, 0);
+        assertEquals(-1, moving.sweep(new BoundingBox(0, 2, 0, 1, 3, 1), 0, 1, 0, normal), 0);
+        assertEquals(-1, moving.sweep(new BoundingBox(0, 0, -3, 1, 1, -1), 0, 0, -1, normal), 0);
+        // Consistent with intersects() at the end position
+        assertFalse(new BoundingBox(1, 0, 0, 2, 1, 1).intersects(new BoundingBox(2, 0, 0, 3, 1, 1)));
+    }
+
+    @Test
+    public void calculateOffsetsClipMovement() {
+        BoundingBox block = new BoundingBox(0, 0, 0, 1, 1, 1);
+
+        assertEquals(0.5, block.calculateXOffset(new BoundingBox(-1.5, 0, 0, -0.5, 1, 1), 2), 1.0E-9);
+        assertEquals(-0.5, block.calculateXOffset(new BoundingBox(1.5, 0, 0, 2.5, 1, 1), -2), 1.0E-9);
+        // Moving away, or not overlapping on the other axes
+        assertEquals(-2, block.calculateXOffset(new BoundingBox(-1.5, 0, 0, -0.5, 1, 1), -2), 0);
+        assertEquals(2, block.calculateXOffset(new BoundingBox(-1.5, 1, 0, -0.5, 2, 1), 2), 0);
+
+        assertEquals(-0.25, block.calculateYOffset(new BoundingBox(0, 1.25, 0, 1, 2.25, 1), -1), 1.0E-9);
+        assertEquals(0.5, block.calculateYOffset(new BoundingBox(0.5, -1.5, 0.5, 1.5, -0.5, 1.5), 3), 1.0E-9);
+        assertEquals(-1, block.calculateYOffset(new BoundingBox(1, 1.25, 0, 2, 2.25, 1), -1), 0);
+
+        assertEquals(0, block.calculateZOffset(new BoundingBox(0, 0, 1, 1, 1, 2), -1), 0);
+        assertEquals(0.75, block.calculateZOffset(new BoundingBox(0, 0, -1.75, 1, 1, -0.75), 1), 1.0E-9);
+        assertEquals(1, block.calculateZOffset(new BoundingBox(0, 1, -1.75, 1, 2, -0.75), 1), 0);
+    }
+
+    @Test
+    public void rayTraceMissClearsNormal() {
+        BoundingBox box = new BoundingBox(0, 0, 0, 1, 1, 1);
+        double[] normal = new double[3];
+        assertEquals(1, box.rayTrace(-1, 0.5, 0.5, 1, 0, 0, 10, normal), 1.0E-9);
+        assertArrayEquals(new double[] {-1, 0, 0}, normal, 0);
+
+        assertEquals(-1, box.rayTrace(-1, 5, 0.5, 1, 0, 0, 10, normal), 0);
+        assertArrayEquals(new double[3], normal, 0);
+    }
+
+    @Test
+    public void inPlaceOperationsMatchCopies() {
+        BoundingBox box = new BoundingBox(-1, 2, -3, 4, 5.5, 6);
+        BoundingBox other = new BoundingBox(-2, 3, 0, 1, 8, 2);
+
+        assertSelf(box.expand(0.5, 1, 2), box.copy(), b -> b.expandSelf(0.5, 1, 2));
+        assertSelf(box.expand(0.25), box.copy(), b -> b.expandSelf(0.25));
+        assertSelf(box.shrink(0.5, 1, 2), box.copy(), b -> b.shrinkSelf(0.5, 1, 2));
+        assertSelf(box.shrink(0.25), box.copy(), b -> b.shrinkSelf(0.25));
+        assertSelf(box.add(-1, 2, 0), box.copy(), b -> b.addSelf(-1, 2, 0));
+        assertSelf(box.add(3, -4, -0.5), box.copy(), b -> b.addSelf(3, -4, -0.5));
+        assertSelf(box.translate(1, -2, 3.5), box.copy(), b -> b.translateSelf(1, -2, 3.5));
+        assertSelf(box.combine(other), box.copy(), b -> b.combineSelf(other));
+        // The allocating versions leave the original alone
+        assertEquals(new BoundingBox(-1, 2, -3, 4, 5.5, 6), box);
+    }
+
+    static void assertSelf(BoundingBox expected, BoundingBox box, UnaryOperator<BoundingBox> operation) {
+        assertSame(box, operation.apply(box));
+        assertEquals(expected, box);
+    }
+
+}
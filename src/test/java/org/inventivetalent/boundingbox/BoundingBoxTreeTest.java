@@ -0,0 +1,265 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BoundingBoxTreeTest {
+
+    final Random random = new Random(3);
+
+    BoundingBox randomBox() {
+        double x = random.nextDouble() * 100, y = random.nextDouble() * 100, z = random.nextDouble() * 100;
+        return new BoundingBox(x, y, z, x + random.nextDouble() * 5, y + random.nextDouble() * 5, z + random.nextDouble() * 5);
+    }
+
+    static boolean overlaps(BoundingBox a, BoundingBox b) {
+        return a.minX <= b.maxX && a.maxX >= b.minX && a.minY <= b.maxY && a.maxY >= b.minY && a.minZ <= b.maxZ && a.maxZ >= b.minZ;
+    }
+
+    static boolean rayHits(BoundingBox box, double[] origin, double[] direction, double maxDistance) {
+        double[] min = {box.minX, box.minY, box.minZ};
+        double[] max = {box.maxX, box.maxY, box.maxZ};
+        double tMin = 0, tMax = maxDistance;
+        for (int axis = 0; axis < 3; axis++) {
+            if (direction[axis] == 0) {
+                if (origin[axis] < min[axis] || origin[axis] > max[axis]) {
+                    return false;
+                }
+                continue;
+            }
+            double t1 = (min[axis] - origin[axis]) / direction[axis];
+            double t2 = (max[axis] - origin[axis]) / direction[axis];
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+        }
+        return tMin <= tMax;
+    }
+
+    /**
+     * Checks parent links, heights, balance and bounds of the subtree
+     *
+     * @return number of leaves in the subtree
+     */
+    static int validate(BoundingBoxTree<?> tree, int node) {
+        if (tree.isLeaf(node)) {
+            assertEquals(0, tree.height[node]);
+            return 1;
+        }
+        int a = tree.child1[node], b = tree.child2[node];
+        assertEquals(node, tree.parent[a]);
+        assertEquals(node, tree.parent[b]);
+        assertEquals(1 + Math.max(tree.height[a], tree.height[b]), tree.height[node]);
+        assertTrue("unbalanced node " + node, Math.abs(tree.height[a] - tree.height[b]) <= 1);
+        for (int axis = 0; axis < 3; axis++) {
+            assertEquals(Math.min(tree.bounds[a * 6 + axis], tree.bounds[b * 6 + axis]), tree.bounds[node * 6 + axis], 0);
+            assertEquals(Math.max(tree.bounds[a * 6 + 3 + axis], tree.bounds[b * 6 + 3 + axis]), tree.bounds[node * 6 + 3 + axis], 0);
+        }
+        return validate(tree, a) + validate(tree, b);
+    }
+
+    static void validate(BoundingBoxTree<?> tree) {
+        if (tree.root == BoundingBoxTree.NULL) {
+            assertEquals(0, tree.size());
+            return;
+        }
+        assertEquals(BoundingBoxTree.NULL, tree.parent[tree.root]);
+        assertEquals(tree.size(), validate(tree, tree.root));
+    }
+
+    static List<Integer> query(BoundingBoxTree<Integer> tree, BoundingBox region) {
+        List<Integer> result = new ArrayList<>();
+        tree.query(region, result::add);
+        Collections.sort(result);
+        return result;
+    }
+
+    static List<Integer> bruteForce(Map<Integer, BoundingBox> fatBoxes, BoundingBox region) {
+        List<Integer> result = new ArrayList<>();
+        for (Map.Entry<Integer, BoundingBox> entry : fatBoxes.entrySet()) {
+            if (overlaps(entry.getValue(), region)) {
+                result.add(entry.getKey());
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    static List<Long> pairs(BoundingBoxTree<Integer> tree) {
+        List<Long> pairs = new ArrayList<>();
+        tree.forEachOverlappingPair((a, b) -> pairs.add(Math.min(a, b) * 100000L + Math.max(a, b)));
+        Collections.sort(pairs);
+        return pairs;
+    }
+
+    @Test
+    public void randomOperationsMatchBruteForce() {
+        BoundingBoxTree<Integer> tree = new BoundingBoxTree<>();
+        Map<Integer, Integer> ids = new HashMap<>();// object -> id
+        Map<Integer, BoundingBox> fatBoxes = new HashMap<>();// object -> fat box
+        int next = 0;
+        for (int n = 0; n < 3000; n++) {
+            int op = random.nextInt(10);
+            if (op < 5 || ids.isEmpty()) {
+                int object = next++;
+                int id = tree.insert(randomBox(), object);
+                assertEquals(Integer.valueOf(object), tree.getObject(id));
+                ids.put(object, id);
+            } else if (op < 7) {
+                Integer object = new ArrayList<>(ids.keySet()).get(random.nextInt(ids.size()));
+                tree.remove(ids.remove(object));
+                fatBoxes.remove(object);
+            } else {
+                Integer object = new ArrayList<>(ids.keySet()).get(random.nextInt(ids.size()));
+                BoundingBox box = tree.getFatBox(ids.get(object), new BoundingBox());
+                double dx = random.nextDouble() - 0.5, dy = random.nextDouble() - 0.5, dz = random.nextDouble() - 0.5;
+                tree.update(ids.get(object), new BoundingBox(box.minX + dx, box.minY + dy, box.minZ + dz, box.maxX + dx - 0.2, box.maxY + dy - 0.2, box.maxZ + dz - 0.2), dx, dy, dz);
+            }
+            for (Map.Entry<Integer, Integer> entry : ids.entrySet()) {
+                fatBoxes.put(entry.getKey(), tree.getFatBox(entry.getValue(), new BoundingBox()));
+            }
+            assertEquals(ids.size(), tree.size());
+            if (n % 50 == 0) {
+                validate(tree);
+                for (int q = 0; q < 20; q++) {
+                    BoundingBox region = randomBox();
+                    assertEquals(bruteForce(fatBoxes, region), query(tree, region));
+                }
+            }
+        }
+        validate(tree);
+        // A balanced tree stays logarithmic
+        assertTrue(tree.getHeight() <= 2 * (32 - Integer.numberOfLeadingZeros(tree.size())));
+    }
+
+    @Test
+    public void pairsMatchBruteForce() {
+        BoundingBoxTree<Integer> tree = new BoundingBoxTree<>();
+        List<BoundingBox> fatBoxes = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            int id = tree.insert(randomBox(), i);
+            fatBoxes.add(tree.getFatBox(id, new BoundingBox()));
+        }
+        List<Long> expected = new ArrayList<>();
+        for (int a = 0; a < fatBoxes.size(); a++) {
+            for (int b = a + 1; b < fatBoxes.size(); b++) {
+                if (overlaps(fatBoxes.get(a), fatBoxes.get(b))) {
+                    expected.add(a * 100000L + b);
+                }
+            }
+        }
+        assertEquals(expected, pairs(tree));
+    }
+
+    @Test
+    public void rayCastMatchesBruteForce() {
+        BoundingBoxTree<Integer> tree = new BoundingBoxTree<>();
+        List<BoundingBox> fatBoxes = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            int id = tree.insert(randomBox(), i);
+            fatBoxes.add(tree.getFatBox(id, new BoundingBox()));
+        }
+        for (int r = 0; r < 200; r++) {
+            double[] origin = {random.nextDouble() * 100, random.nextDouble() * 100, random.nextDouble() * 100};
+            double[] direction = {random.nextGaussian(), random.nextGaussian(), r % 4 == 0 ? 0 : random.nextGaussian()};
+            double maxDistance = random.nextDouble() * 50;
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < fatBoxes.size(); i++) {
+                if (rayHits(fatBoxes.get(i), origin, direction, maxDistance)) {
+                    expected.add(i);
+                }
+            }
+            List<Integer> actual = new ArrayList<>();
+            tree.rayCast(origin[0], origin[1], origin[2], direction[0], direction[1], direction[2], maxDistance, actual::add);
+            Collections.sort(actual);
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void nestedQueriesDontInterfere() {
+        BoundingBoxTree<Integer> tree = new BoundingBoxTree<>();
+        Map<Integer, BoundingBox> fatBoxes = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            int id = tree.insert(randomBox(), i);
+            fatBoxes.put(i, tree.getFatBox(id, new BoundingBox()));
+        }
+        List<Long> expectedPairs = pairs(tree);
+
+        List<Long> actualPairs = new ArrayList<>();
+        tree.forEachOverlappingPair((a, b) -> {
+            actualPairs.add(Math.min(a, b) * 100000L + Math.max(a, b));
+            BoundingBox region = fatBoxes.get(a);
+            assertEquals(bruteForce(fatBoxes, region), query(tree, region));
+        });
+        Collections.sort(actualPairs);
+        assertEquals(expectedPairs, actualPairs);
+    }
+
+    @Test
+    public void updateInsideFatBoxKeepsTree() {
+        BoundingBoxTree<String> tree = new BoundingBoxTree<>(0.5);
+        int id = tree.insert(new BoundingBox(0, 0, 0, 1, 1, 1), "a");
+        assertFalse(tree.update(id, new BoundingBox(0.25, 0, 0, 1.25, 1, 1)));
+        assertTrue(tree.update(id, new BoundingBox(2, 0, 0, 3, 1, 1)));
+        assertEquals(new BoundingBox(1.5, -0.5, -0.5, 3.5, 1.5, 1.5), tree.getFatBox(id, new BoundingBox()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void removeTwice() {
+        BoundingBoxTree<String> tree = new BoundingBoxTree<>();
+        int id = tree.insert(new BoundingBox(0, 0, 0, 1, 1, 1), "a");
+        tree.remove(id);
+        tree.remove(id);
+    }
+
+    @Test
+    public void clear() {
+        BoundingBoxTree<Integer> tree = new BoundingBoxTree<>();
+        for (int i = 0; i < 100; i++) {
+            tree.insert(randomBox(), i);
+        }
+        tree.clear();
+        assertEquals(0, tree.size());
+        assertEquals(0, tree.getHeight());
+        assertTrue(query(tree, new BoundingBox(-1000, -1000, -1000, 1000, 1000, 1000)).isEmpty());
+        tree.insert(randomBox(), 1);
+        validate(tree);
+    }
+
+}
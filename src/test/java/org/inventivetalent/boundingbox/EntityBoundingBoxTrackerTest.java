@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class EntityBoundingBoxTrackerTest {
+
+    @Test
+    public void mapMatchesHashSet() {
+        EntityBoundingBoxTracker tracker = new EntityBoundingBoxTracker(new EntityBoundingBoxListener() {
+        });
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(7);
+        for (int n = 0; n < 200000; n++) {
+            // Small key range, so there are plenty of collisions and wrap-arounds
+            int key = random.nextInt(512);
+            int slot = tracker.find(key);
+            assertEquals(expected.contains(key), slot >= 0);
+            if (random.nextInt(3) == 0) {
+                if (slot >= 0) {
+                    tracker.remove(slot);
+                    expected.remove(key);
+                }
+            } else if (slot < 0) {
+                tracker.insert(key);
+                expected.add(key);
+            }
+            assertEquals(expected.size(), tracker.size());
+            if (n % 1000 == 0) {
+                for (int k = 0; k < 512; k++) {
+                    assertEquals(expected.contains(k), tracker.isTracked(k));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void removeAllEmptiesMap() {
+        EntityBoundingBoxTracker tracker = new EntityBoundingBoxTracker(new EntityBoundingBoxListener() {
+        });
+        for (int key = 0; key < 1000; key++) {
+            tracker.insert(key * 64);
+        }
+        for (int key = 0; key < 1000; key++) {
+            int slot = tracker.find(key * 64);
+            assertTrue(slot >= 0);
+            tracker.remove(slot);
+            assertFalse(tracker.isTracked(key * 64));
+            for (int other = key + 1; other < Math.min(key + 50, 1000); other++) {
+                assertTrue(tracker.isTracked(other * 64));
+            }
+        }
+        assertEquals(0, tracker.size());
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 inventivetalent. All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without modification, are
+ *  permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this list of
+ *        conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *        of conditions and the following disclaimer in the documentation and/or other materials
+ *        provided with the distribution.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ''AS IS'' AND ANY EXPRESS OR IMPLIED
+ *  WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ *  FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR
+ *  CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ *  ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ *  NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ *  ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *  The views and conclusions contained in the software and documentation are those of the
+ *  authors and contributors and should not be interpreted as representing official policies,
+ *  either expressed or implied, of anybody else.
+ */
+
+package org.inventivetalent.boundingbox;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void lowestValueIsInverseOfIndex() {
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            assertEquals(i, LatencyHistogram.index(LatencyHistogram.lowestValue(i)));
+        }
+    }
+
+    @Test
+    public void bucketsAreContiguous() {
+        for (int i = 1; i < LatencyHistogram.BUCKETS; i++) {
+            long lowest = LatencyHistogram.lowestValue(i);
+            assertTrue(lowest > LatencyHistogram.lowestValue(i - 1));
+            assertEquals(i - 1, LatencyHistogram.index(lowest - 1));
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.index(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void relativeErrorIsBounded() {
+        Random random = new Random(1);
+        for (int n = 0; n < 100000; n++) {
+            long value = random.nextLong() >>> (random.nextInt(63) + 1);
+            long lowest = LatencyHistogram.lowestValue(LatencyHistogram.index(value));
+            assertTrue(lowest <= value);
+            // 8 sub-buckets per power of two
+            assertTrue(value - lowest <= value / LatencyHistogram.SUB_BUCKETS);
+        }
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+        histogram.record(-5);
+        MetricSnapshot snapshot = histogram.snapshot(BoundingBoxMetrics.Metric.BLOCK_BOUNDING_BOX);
+        assertEquals(101, snapshot.getCount());
+        assertEquals(100000, snapshot.getMaxNanos());
+        assertTrue(snapshot.getP50Nanos() <= 50000 && snapshot.getP50Nanos() > 50000 * 7 / 8);
+        assertTrue(snapshot.getP99Nanos() <= 99000 && snapshot.getP99Nanos() > 99000 * 7 / 8);
+
+        histogram.reset();
+        assertEquals(0, histogram.snapshot(BoundingBoxMetrics.Metric.BLOCK_BOUNDING_BOX).getCount());
+    }
+
+}